@@ -0,0 +1,26 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persists the serialized AuthState of every session ({@code AuthState#jsonSerializeString()} plus the time its access
+ * token was issued) between app starts.
+ * Implementations are always called from a background thread.
+ */
+public interface AuthStateStore {
+    String read(String key);
+
+    Map<String, String> readAll();
+
+    void write(String key, String serializedAuthState);
+
+    void remove(String key);
+
+    /**
+     * The keys of all stored auth states. By default they are read with {@link #readAll()}.
+     */
+    default Set<String> keys() {
+        return readAll().keySet();
+    }
+}
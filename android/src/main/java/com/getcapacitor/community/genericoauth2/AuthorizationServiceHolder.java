@@ -0,0 +1,93 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.content.Context;
+import net.openid.appauth.AppAuthConfiguration;
+import net.openid.appauth.AuthorizationService;
+import net.openid.appauth.browser.BrowserDescriptor;
+import net.openid.appauth.connectivity.ConnectionBuilder;
+
+/**
+ * Shares one AuthorizationService and therefore one warm Custom Tabs connection between all plugin calls.
+ * Every user of the service acquires it and releases it when done, so the service is only disposed when nothing uses it anymore.
+ * While the app is stopped the service is disposed as soon as it is idle, also after an acquire in the background, e.g. by the
+ * refresh ahead.
+ */
+public class AuthorizationServiceHolder {
+
+    private final Context context;
+    private final ConnectionBuilder connectionBuilder;
+    private AuthorizationService service;
+    // AppAuth has no public way to pass the descriptor, so the browser chosen first is pinned by a matcher
+    private BrowserDescriptor browserDescriptor;
+    private int references;
+    private boolean stopped;
+
+    /**
+     * @param connectionBuilder opens the connections of the token requests
+     */
+    public AuthorizationServiceHolder(Context context, ConnectionBuilder connectionBuilder) {
+        this.context = context;
+        this.connectionBuilder = connectionBuilder;
+    }
+
+    public synchronized AuthorizationService acquire() {
+        references++;
+        if (service == null) {
+            service = createService(browserDescriptor);
+            if (service.getBrowserDescriptor() == null && browserDescriptor != null) {
+                // the pinned browser is gone e.g. uninstalled, choose again
+                service.dispose();
+                service = createService(null);
+            }
+            browserDescriptor = service.getBrowserDescriptor();
+        }
+        return service;
+    }
+
+    public synchronized void release() {
+        if (references > 0) {
+            references--;
+        }
+        if (references == 0 && stopped) {
+            disposeService();
+        }
+    }
+
+    /**
+     * The app is in the background: disposes the service now if nobody uses it, otherwise as soon as the last user releases
+     * it, until {@link #onStart()}.
+     */
+    public synchronized void onStop() {
+        stopped = true;
+        if (references == 0) {
+            disposeService();
+        }
+    }
+
+    /**
+     * The app is in the foreground again, an idle service is kept for the next call.
+     */
+    public synchronized void onStart() {
+        stopped = false;
+    }
+
+    public synchronized void dispose() {
+        references = 0;
+        disposeService();
+    }
+
+    private AuthorizationService createService(final BrowserDescriptor pinnedBrowser) {
+        AppAuthConfiguration.Builder configBuilder = new AppAuthConfiguration.Builder().setConnectionBuilder(connectionBuilder);
+        if (pinnedBrowser != null) {
+            configBuilder.setBrowserMatcher(pinnedBrowser::equals);
+        }
+        return new AuthorizationService(context, configBuilder.build());
+    }
+
+    private void disposeService() {
+        if (service != null) {
+            service.dispose();
+            service = null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.getcapacitor.community.genericoauth2;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A circuit breaker per endpoint. After a number of consecutive transient failures the endpoint is open and requests
+ * fail fast. Once the open duration passed a single trial request is let through, its result closes or reopens it.
+ * A trial without result, e.g. its callback never came as the service was disposed, is given up after the trial timeout.
+ */
+public class CircuitBreakerRegistry {
+
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    static final long DEFAULT_OPEN_DURATION = 30 * 1000;
+    // longer than the connect and read timeouts of a request
+    static final long TRIAL_TIMEOUT = 60 * 1000;
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDuration;
+    private final Map<String, Breaker> breakers = new LinkedHashMap<>();
+
+    /**
+     * @param failureThreshold consecutive failures opening the breaker, 0 or less disables it
+     */
+    public CircuitBreakerRegistry(int failureThreshold, long openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * @return the url without query and fragment
+     */
+    static String endpointOf(String url) {
+        int end = url.length();
+        int query = url.indexOf('?');
+        if (query != -1) {
+            end = query;
+        }
+        int fragment = url.indexOf('#');
+        if (fragment != -1 && fragment < end) {
+            end = fragment;
+        }
+        return url.substring(0, end);
+    }
+
+    /**
+     * Must be followed by {@link #recordSuccess(String)} or {@link #recordFailure(String, long)}.
+     * @throws OpenException if the request must not be made
+     */
+    public synchronized void acquire(String endpoint, long now) throws OpenException {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        Breaker breaker = breakers.get(endpoint);
+        if (breaker == null || breaker.state == State.CLOSED) {
+            return;
+        }
+        if (breaker.state == State.OPEN && now >= breaker.openedAt + openDuration) {
+            breaker.state = State.HALF_OPEN;
+            breaker.trialInFlight = false;
+        }
+        if (breaker.state == State.HALF_OPEN && (!breaker.trialInFlight || now >= breaker.trialStartedAt + TRIAL_TIMEOUT)) {
+            breaker.trialInFlight = true;
+            breaker.trialStartedAt = now;
+            return;
+        }
+        throw new OpenException(endpoint);
+    }
+
+    public synchronized void recordSuccess(String endpoint) {
+        Breaker breaker = breakers.get(endpoint);
+        if (breaker != null) {
+            breaker.state = State.CLOSED;
+            breaker.consecutiveFailures = 0;
+            breaker.trialInFlight = false;
+        }
+    }
+
+    public synchronized void recordFailure(String endpoint, long now) {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        Breaker breaker = breakers.get(endpoint);
+        if (breaker == null) {
+            breaker = new Breaker();
+            breakers.put(endpoint, breaker);
+        }
+        breaker.consecutiveFailures++;
+        breaker.trialInFlight = false;
+        if (breaker.state == State.HALF_OPEN || breaker.consecutiveFailures >= failureThreshold) {
+            breaker.state = State.OPEN;
+            breaker.openedAt = now;
+        }
+    }
+
+    synchronized State getState(String endpoint, long now) {
+        Breaker breaker = breakers.get(endpoint);
+        if (breaker == null) {
+            return State.CLOSED;
+        }
+        if (breaker.state == State.OPEN && now >= breaker.openedAt + openDuration) {
+            return State.HALF_OPEN;
+        }
+        return breaker.state;
+    }
+
+    /**
+     * @return endpoint, state, consecutive_failures and for open ones retry_after_ms of every endpoint that failed so far
+     */
+    public synchronized JSArray toJSArray(long now) {
+        JSArray array = new JSArray();
+        for (Map.Entry<String, Breaker> entry : breakers.entrySet()) {
+            State state = getState(entry.getKey(), now);
+            JSObject json = new JSObject();
+            json.put("endpoint", entry.getKey());
+            json.put("state", state.name().toLowerCase(Locale.ROOT));
+            json.put("consecutive_failures", entry.getValue().consecutiveFailures);
+            if (state == State.OPEN) {
+                json.put("retry_after_ms", entry.getValue().openedAt + openDuration - now);
+            }
+            array.put(json);
+        }
+        return array;
+    }
+
+    private static class Breaker {
+
+        State state = State.CLOSED;
+        int consecutiveFailures;
+        long openedAt;
+        boolean trialInFlight;
+        long trialStartedAt;
+    }
+
+    public static class OpenException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String endpoint) {
+            super("Circuit breaker of " + endpoint + " is open");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read and fails as soon as more than the limit was read, so an oversized body is never read completely.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final long limit;
+    private long count;
+
+    /**
+     * @param limit maximum number of bytes, 0 or less for no limit
+     */
+    public CountingInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // a reset would corrupt the count
+        return false;
+    }
+
+    private void count(long n) throws IOException {
+        count += n;
+        if (limit > 0 && count > limit) {
+            throw new LimitExceededException(limit);
+        }
+    }
+
+    public static class LimitExceededException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public LimitExceededException(long limit) {
+            super("Body exceeds the limit of " + limit + " bytes");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.getcapacitor.community.genericoauth2;
+
+import com.getcapacitor.community.genericoauth2.handler.OAuth2CustomHandler;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Instantiates each custom handler class once and keeps the instance, so handlers backed by an SDK initialize it only once.
+ * A failed instantiation is kept too and is thrown again on every lookup.
+ */
+public class CustomHandlerRegistry {
+
+    private final ConcurrentHashMap<String, Future<OAuth2CustomHandler>> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * Waits if the handler is being instantiated by {@link #preload} at the moment.
+     */
+    public OAuth2CustomHandler get(String className) throws ReflectiveOperationException {
+        Future<OAuth2CustomHandler> handler = handlers.get(className);
+        if (handler == null) {
+            FutureTask<OAuth2CustomHandler> task = new FutureTask<>(() -> instantiate(className));
+            handler = handlers.putIfAbsent(className, task);
+            if (handler == null) {
+                handler = task;
+                task.run();
+            }
+        }
+        try {
+            return handler.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ReflectiveOperationException) {
+                throw (ReflectiveOperationException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while instantiating " + className, e);
+        }
+    }
+
+    /**
+     * Instantiates the handlers, meant to be called in the background at startup.
+     *
+     * @return the failures by classname, empty if all handlers could be instantiated
+     */
+    public Map<String, Throwable> preload(String[] classNames) {
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        for (String className : classNames) {
+            if (ConfigUtils.trimToNull(className) == null) {
+                continue;
+            }
+            try {
+                get(className);
+            } catch (Exception | LinkageError e) {
+                failures.put(className, e);
+            }
+        }
+        return failures;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static OAuth2CustomHandler instantiate(String className) throws ReflectiveOperationException {
+        Class<?> handlerClass = Class.forName(className);
+        if (!OAuth2CustomHandler.class.isAssignableFrom(handlerClass)) {
+            throw new ClassCastException(className + " does not implement " + OAuth2CustomHandler.class.getName());
+        }
+        return ((Class<OAuth2CustomHandler>) handlerClass).newInstance();
+    }
+}
@@ -0,0 +1,305 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import net.openid.appauth.AuthorizationServiceConfiguration;
+import net.openid.appauth.AuthorizationServiceDiscovery;
+import net.openid.appauth.connectivity.ConnectionBuilder;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Resolves the OpenID Connect discovery document of an issuer and caches it in memory and in the SharedPreferences.
+ * The lifetime is taken from the Cache-Control header. A stale document is still returned and revalidated
+ * with If-None-Match in the background, so only the very first lookup of an issuer waits for the network.
+ * Concurrent first lookups of an issuer share one request. The requests go through the connection builder of the token
+ * requests, so they use the same pool and are https only.
+ */
+public class DiscoveryCache {
+
+    private static final String PREFERENCES_NAME = "GenericOAuth2Discovery";
+    private static final String WELL_KNOWN_PATH = ".well-known/openid-configuration";
+    static final long DEFAULT_MAX_AGE = 60 * 60 * 1000;
+    private static final int TIMEOUT = 10 * 1000;
+
+    private static final String KEY_DOCUMENT = "document";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_EXPIRES_AT = "expiresAt";
+
+    private final SharedPreferences preferences;
+    private final ConnectionBuilder connectionBuilder;
+    private final String logTag;
+    private final Map<String, Entry> entries = new HashMap<>();
+    // the first lookups of an issuer waiting for its document
+    private final ConcurrentHashMap<String, Future<Entry>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> revalidating = new HashSet<>();
+    private final ExecutorService revalidationExecutor = Executors.newSingleThreadExecutor();
+
+    public DiscoveryCache(Context context, ConnectionBuilder connectionBuilder, String logTag) {
+        this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.connectionBuilder = connectionBuilder;
+        this.logTag = logTag;
+    }
+
+    /**
+     * Must not be called on the main thread as the first lookup of an issuer fetches the document.
+     */
+    public AuthorizationServiceConfiguration get(String issuer) throws IOException {
+        Entry entry = getEntry(issuer);
+        if (entry == null) {
+            entry = fetchOnce(issuer);
+        } else if (entry.expiresAt <= System.currentTimeMillis()) {
+            revalidateInBackground(issuer, entry);
+        }
+        return entry.configuration;
+    }
+
+    public void shutdown() {
+        revalidationExecutor.shutdownNow();
+    }
+
+    static String discoveryUrl(String issuer) {
+        return issuer.endsWith("/") ? issuer + WELL_KNOWN_PATH : issuer + "/" + WELL_KNOWN_PATH;
+    }
+
+    /**
+     * @return the max-age of the Cache-Control header in milliseconds, 0 for no-cache or no-store
+     * and the default if the header does not say anything about it.
+     */
+    static long parseMaxAge(String cacheControl, long defaultMaxAge) {
+        if (cacheControl == null) {
+            return defaultMaxAge;
+        }
+        long maxAge = defaultMaxAge;
+        for (String directive : cacheControl.split(",")) {
+            String d = directive.trim().toLowerCase(Locale.ROOT);
+            if (d.equals("no-cache") || d.equals("no-store")) {
+                return 0;
+            }
+            if (d.startsWith("max-age=")) {
+                try {
+                    maxAge = Math.max(0, Long.parseLong(d.substring("max-age=".length()).replace("\"", ""))) * 1000;
+                } catch (NumberFormatException e) {
+                    // keep the default
+                }
+            }
+        }
+        return maxAge;
+    }
+
+    static boolean isNoStore(String cacheControl) {
+        return cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains("no-store");
+    }
+
+    private synchronized Entry getEntry(String issuer) {
+        Entry entry = entries.get(issuer);
+        if (entry == null) {
+            entry = readEntry(issuer);
+            if (entry != null) {
+                entries.put(issuer, entry);
+            }
+        }
+        return entry;
+    }
+
+    private synchronized void put(String issuer, Entry entry) {
+        entries.put(issuer, entry);
+        if (entry.store) {
+            writeEntry(issuer, entry);
+        } else {
+            preferences.edit().remove(issuer).apply();
+        }
+    }
+
+    private void revalidateInBackground(final String issuer, final Entry stale) {
+        synchronized (this) {
+            if (!revalidating.add(issuer)) {
+                return;
+            }
+        }
+        revalidationExecutor.execute(() -> {
+            try {
+                put(issuer, fetch(issuer, stale));
+            } catch (IOException e) {
+                // keep using the stale document, the next lookup tries again
+                Log.w(logTag, "Revalidation of the discovery document of " + issuer + " failed.", e);
+            } finally {
+                synchronized (this) {
+                    revalidating.remove(issuer);
+                }
+            }
+        });
+    }
+
+    /**
+     * Fetches the document unless another thread is fetching it already, then its result is used.
+     */
+    private Entry fetchOnce(final String issuer) throws IOException {
+        FutureTask<Entry> task = new FutureTask<>(() -> {
+            Entry entry = fetch(issuer, null);
+            put(issuer, entry);
+            return entry;
+        });
+        Future<Entry> running = inFlight.putIfAbsent(issuer, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                // a failure is not kept, the next lookup tries again
+                inFlight.remove(issuer, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading the discovery document of " + issuer);
+        }
+    }
+
+    private Entry fetch(String issuer, Entry cached) throws IOException {
+        HttpURLConnection conn = connectionBuilder.openConnection(Uri.parse(discoveryUrl(issuer)));
+        boolean bodyConsumed = false;
+        try {
+            conn.setConnectTimeout(TIMEOUT);
+            conn.setReadTimeout(TIMEOUT);
+            conn.setRequestProperty("Accept", "application/json");
+            if (cached != null && cached.etag != null) {
+                conn.setRequestProperty("If-None-Match", cached.etag);
+            }
+            int code = conn.getResponseCode();
+            String cacheControl = conn.getHeaderField("Cache-Control");
+            long expiresAt = System.currentTimeMillis() + parseMaxAge(cacheControl, DEFAULT_MAX_AGE);
+            String etag = conn.getHeaderField("ETag");
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                // no body, closing the stream returns the connection to the pool
+                conn.getInputStream().close();
+                bodyConsumed = true;
+                return new Entry(
+                    cached.document,
+                    etag != null ? etag : cached.etag,
+                    expiresAt,
+                    !isNoStore(cacheControl),
+                    cached.configuration
+                );
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Discovery document of " + issuer + " returned HTTP " + code);
+            }
+            String document = readInputStream(conn.getInputStream());
+            bodyConsumed = true;
+            return new Entry(document, etag, expiresAt, !isNoStore(cacheControl), parse(issuer, document));
+        } finally {
+            // a connection whose body was read completely stays in the pool
+            if (!bodyConsumed) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    private Entry readEntry(String issuer) {
+        String stored = preferences.getString(issuer, null);
+        if (stored == null) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(stored);
+            String document = json.getString(KEY_DOCUMENT);
+            return new Entry(document, json.optString(KEY_ETAG, null), json.getLong(KEY_EXPIRES_AT), true, parse(issuer, document));
+        } catch (JSONException | IOException e) {
+            Log.w(logTag, "Cached discovery document of " + issuer + " is invalid and is discarded.", e);
+            preferences.edit().remove(issuer).apply();
+            return null;
+        }
+    }
+
+    private void writeEntry(String issuer, Entry entry) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put(KEY_DOCUMENT, entry.document);
+            json.put(KEY_ETAG, entry.etag);
+            json.put(KEY_EXPIRES_AT, entry.expiresAt);
+            preferences.edit().putString(issuer, json.toString()).apply();
+        } catch (JSONException e) {
+            Log.w(logTag, "Discovery document of " + issuer + " could not be cached.", e);
+        }
+    }
+
+    /**
+     * @throws IOException if the document is invalid or names another issuer, which must match exactly as its endpoints
+     * would be trusted for the configured issuer otherwise
+     */
+    static AuthorizationServiceConfiguration parse(String issuer, String document) throws IOException {
+        try {
+            JSONObject json = new JSONObject(document);
+            String documentIssuer = json.optString("issuer", null);
+            if (!issuer.equals(documentIssuer)) {
+                throw new IOException("Discovery document of " + issuer + " names the issuer " + documentIssuer);
+            }
+            return new AuthorizationServiceConfiguration(new AuthorizationServiceDiscovery(json));
+        } catch (JSONException | AuthorizationServiceDiscovery.MissingArgumentException e) {
+            throw new IOException("Invalid discovery document", e);
+        }
+    }
+
+    private static String readInputStream(InputStream in) throws IOException {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[1024];
+            StringBuilder sb = new StringBuilder();
+            int readCount;
+            while ((readCount = br.read(buffer)) != -1) {
+                sb.append(buffer, 0, readCount);
+            }
+            return sb.toString();
+        }
+    }
+
+    private static class Entry {
+
+        final String document;
+        final String etag;
+        // wall clock as it is persisted across app starts
+        final long expiresAt;
+        final boolean store;
+        final AuthorizationServiceConfiguration configuration;
+
+        Entry(String document, String etag, long expiresAt, boolean store, AuthorizationServiceConfiguration configuration) {
+            this.document = document;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+            this.store = store;
+            this.configuration = configuration;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Base64;
+import android.util.Log;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Default {@link AuthStateStore} keeping the AuthState AES/GCM encrypted in the SharedPreferences.
+ * The key lives in the AndroidKeyStore, see {@link KeystoreCipher}.
+ */
+public class EncryptedAuthStateStore implements AuthStateStore {
+
+    private static final String PREFERENCES_NAME = "GenericOAuth2AuthState";
+
+    private final SharedPreferences preferences;
+    private final String logTag;
+    private final KeystoreCipher cipher = new KeystoreCipher();
+
+    public EncryptedAuthStateStore(Context context, String logTag) {
+        this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.logTag = logTag;
+    }
+
+    public static boolean isSupported() {
+        return KeystoreCipher.isSupported();
+    }
+
+    @Override
+    public synchronized String read(String key) {
+        String encrypted = preferences.getString(key, null);
+        if (encrypted == null) {
+            return null;
+        }
+        return decrypt(key, encrypted);
+    }
+
+    @Override
+    public synchronized Map<String, String> readAll() {
+        Map<String, String> authStates = new HashMap<>();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getValue() instanceof String) {
+                String decrypted = decrypt(entry.getKey(), (String) entry.getValue());
+                if (decrypted != null) {
+                    authStates.put(entry.getKey(), decrypted);
+                }
+            }
+        }
+        return authStates;
+    }
+
+    @Override
+    public synchronized void write(String key, String serializedAuthState) {
+        try {
+            byte[] data = cipher.encrypt(serializedAuthState.getBytes(StandardCharsets.UTF_8));
+            preferences.edit().putString(key, Base64.encodeToString(data, Base64.NO_WRAP)).apply();
+        } catch (GeneralSecurityException e) {
+            Log.e(logTag, "Auth state could not be encrypted and is not stored.", e);
+        }
+    }
+
+    @Override
+    public synchronized void remove(String key) {
+        preferences.edit().remove(key).apply();
+    }
+
+    @Override
+    public synchronized Set<String> keys() {
+        // nothing to decrypt
+        return new HashSet<>(preferences.getAll().keySet());
+    }
+
+    private String decrypt(String key, String encrypted) {
+        try {
+            byte[] decrypted = cipher.decrypt(Base64.decode(encrypted, Base64.NO_WRAP));
+            return new String(decrypted, StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            // the key might be gone e.g. after a backup restore on another device, so the entry is useless
+            Log.w(logTag, "Stored auth state could not be decrypted and is discarded.", e);
+            preferences.edit().remove(key).apply();
+            return null;
+        }
+    }
+}
@@ -2,11 +2,15 @@ package com.getcapacitor.community.genericoauth2;
 
 import android.app.Activity;
 import android.content.ActivityNotFoundException;
+import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.activity.result.ActivityResult;
+import androidx.browser.customtabs.CustomTabsIntent;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -14,12 +18,32 @@ import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.ActivityCallback;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.getcapacitor.community.genericoauth2.handler.AccessTokenCallback;
+import com.getcapacitor.community.genericoauth2.handler.AccessTokenResponse;
+import com.getcapacitor.community.genericoauth2.handler.LogoutCallback;
 import com.getcapacitor.community.genericoauth2.handler.OAuth2CustomHandler;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import net.openid.appauth.AuthState;
 import net.openid.appauth.AuthorizationException;
 import net.openid.appauth.AuthorizationRequest;
 import net.openid.appauth.AuthorizationResponse;
+import net.openid.appauth.AuthorizationService.TokenResponseCallback;
 import net.openid.appauth.AuthorizationService;
 import net.openid.appauth.AuthorizationServiceConfiguration;
 import net.openid.appauth.EndSessionRequest;
@@ -27,7 +51,10 @@ import net.openid.appauth.EndSessionResponse;
 import net.openid.appauth.GrantTypeValues;
 import net.openid.appauth.TokenRequest;
 import net.openid.appauth.TokenResponse;
+import net.openid.appauth.connectivity.ConnectionBuilder;
+import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
 
 @CapacitorPlugin(name = "GenericOAuth2")
 public class GenericOAuth2Plugin extends Plugin {
@@ -40,8 +67,11 @@ public class GenericOAuth2Plugin extends Plugin {
     private static final String PARAM_STATE = "state";
 
     private static final String PARAM_ACCESS_TOKEN_ENDPOINT = "accessTokenEndpoint";
+    private static final String PARAM_ISSUER = "issuer";
     private static final String PARAM_PKCE_ENABLED = "pkceEnabled";
     private static final String PARAM_RESOURCE_URL = "resourceUrl";
+    private static final String PARAM_RESOURCE_URLS = "resourceUrls";
+    private static final String PARAM_RESOURCE_TIMEOUTS = "resourceTimeouts";
     private static final String PARAM_ADDITIONAL_RESOURCE_HEADERS = "additionalResourceHeaders";
     private static final String PARAM_ADDITIONAL_PARAMETERS = "additionalParameters";
     private static final String PARAM_ANDROID_CUSTOM_HANDLER_CLASS = "android.customHandlerClass";
@@ -62,6 +92,45 @@ public class GenericOAuth2Plugin extends Plugin {
     private static final String PARAM_LOGOUT_URL = "logoutUrl";
     private static final String PARAM_ID_TOKEN = "id_token";
 
+    // request params
+    private static final String PARAM_URL = "url";
+    private static final String PARAM_METHOD = "method";
+    private static final String PARAM_HEADERS = "headers";
+    private static final String PARAM_DATA = "data";
+    private static final String PARAM_TIMEOUT = "timeout";
+
+    // plugin config
+    private static final String CONFIG_PERSIST_AUTH_STATE = "persistAuthState";
+    private static final String CONFIG_AUTH_STATE_STORE_CLASS = "authStateStoreClass";
+    private static final String CONFIG_REFRESH_AHEAD_FRACTION = "refreshAheadFraction";
+    private static final String CONFIG_REFRESH_AHEAD_JITTER = "refreshAheadJitter";
+    private static final double DEFAULT_REFRESH_AHEAD_JITTER = 0.05;
+    private static final String CONFIG_MAX_SESSIONS = "maxSessions";
+    private static final int DEFAULT_MAX_SESSIONS = 10;
+    private static final String CONFIG_RESOURCE_CONNECT_TIMEOUT = "resourceConnectTimeout";
+    private static final String CONFIG_RESOURCE_READ_TIMEOUT = "resourceReadTimeout";
+    private static final String CONFIG_RESOURCE_MAX_BODY_SIZE = "resourceMaxBodySize";
+    private static final String CONFIG_RESOURCE_CACHE_SIZE = "resourceCacheSize";
+    private static final int DEFAULT_RESOURCE_CACHE_SIZE = 1024 * 1024;
+    private static final String CONFIG_RESOURCE_CACHE_STALE_WHILE_REVALIDATE = "resourceCacheStaleWhileRevalidate";
+    private static final String CONFIG_MAX_RETRIES = "maxRetries";
+    private static final String CONFIG_RETRY_BASE_DELAY = "retryBaseDelay";
+    private static final String CONFIG_RETRY_MAX_DELAY = "retryMaxDelay";
+    private static final String CONFIG_CIRCUIT_BREAKER_THRESHOLD = "circuitBreakerThreshold";
+    private static final String CONFIG_CIRCUIT_BREAKER_OPEN_DURATION = "circuitBreakerOpenDuration";
+    private static final String CONFIG_TOKEN_CONNECT_TIMEOUT = "tokenConnectTimeout";
+    private static final String CONFIG_TOKEN_READ_TIMEOUT = "tokenReadTimeout";
+    private static final String CONFIG_TOKEN_SERVER_OVERRIDE = "tokenServerOverride";
+    private static final String CONFIG_TOKEN_CONNECTION_BUILDER_CLASS = "tokenConnectionBuilderClass";
+    private static final String CONFIG_CUSTOM_HANDLER_CLASSES = "customHandlerClasses";
+    private static final String CONFIG_LATENCY_METRICS_ENABLED = "latencyMetricsEnabled";
+    // a prepared login page is not launched after that long, state and preloaded page might be stale
+    private static final long PREPARED_AUTHORIZATION_MAX_AGE = 5 * 60 * 1000;
+    // a resource request waits that long for the refresh before it fails with the rejected token
+    private static final long REPLAY_REFRESH_TIMEOUT = 30 * 1000;
+    // grant type of the token request recorded for tokens of a custom handler without refresh token
+    private static final String CUSTOM_HANDLER_GRANT_TYPE = "custom_handler";
+
     private static final String USER_CANCELLED = "USER_CANCELLED";
 
     private static final String ERR_PARAM_NO_APP_ID = "ERR_PARAM_NO_APP_ID";
@@ -71,6 +140,10 @@ public class GenericOAuth2Plugin extends Plugin {
 
     private static final String ERR_PARAM_NO_ACCESS_TOKEN_ENDPOINT = "ERR_PARAM_NO_ACCESS_TOKEN_ENDPOINT";
     private static final String ERR_PARAM_NO_REFRESH_TOKEN = "ERR_PARAM_NO_REFRESH_TOKEN";
+    private static final String ERR_DISCOVERY_FAILED = "ERR_DISCOVERY_FAILED";
+    private static final String ERR_PARAM_NO_URL = "ERR_PARAM_NO_URL";
+    private static final String ERR_PARAM_INVALID_METHOD = "ERR_PARAM_INVALID_METHOD";
+    private static final String ERR_CIRCUIT_OPEN = "ERR_CIRCUIT_OPEN";
 
     private static final String ERR_AUTHORIZATION_FAILED = "ERR_AUTHORIZATION_FAILED";
     private static final String ERR_NO_ACCESS_TOKEN = "ERR_NO_ACCESS_TOKEN";
@@ -84,16 +157,154 @@ public class GenericOAuth2Plugin extends Plugin {
     private static final String ERR_STATES_NOT_MATCH = "ERR_STATES_NOT_MATCH";
     private static final String ERR_NO_AUTHORIZATION_CODE = "ERR_NO_AUTHORIZATION_CODE";
 
+    private static final OptionsBinder<OAuth2Options> AUTHENTICATE_OPTIONS_BINDER = new OptionsBinder<OAuth2Options>()
+        // required
+        .string(PARAM_APP_ID, (o, v) -> o.setAppId(ConfigUtils.trimToNull(v)))
+        .string(PARAM_AUTHORIZATION_BASE_URL, (o, v) -> o.setAuthorizationBaseUrl(ConfigUtils.trimToNull(v)))
+        .string(PARAM_RESPONSE_TYPE, (o, v) -> o.setResponseType(ConfigUtils.trimToNull(v)))
+        .string(PARAM_REDIRECT_URL, (o, v) -> o.setRedirectUrl(ConfigUtils.trimToNull(v)))
+        // optional
+        .string(PARAM_ISSUER, (o, v) -> o.setIssuer(ConfigUtils.trimToNull(v)))
+        .bool(PARAM_LOGS_ENABLED, (o, v) -> o.setLogsEnabled(v != null && v))
+        .string(PARAM_RESOURCE_URL, (o, v) -> o.setResourceUrl(ConfigUtils.trimToNull(v)))
+        .string(PARAM_ACCESS_TOKEN_ENDPOINT, (o, v) -> o.setAccessTokenEndpoint(ConfigUtils.trimToNull(v)))
+        .bool(PARAM_PKCE_ENABLED, (o, v) -> o.setPkceEnabled(v != null && v))
+        .string(PARAM_SCOPE, (o, v) -> o.setScope(ConfigUtils.trimToNull(v)))
+        .string(PARAM_STATE, (o, v) -> o.setState(ConfigUtils.trimToNull(v)))
+        .map(PARAM_ADDITIONAL_PARAMETERS, GenericOAuth2Plugin::setAdditionalParameters)
+        .map(PARAM_ADDITIONAL_RESOURCE_HEADERS, OAuth2Options::setAdditionalResourceHeaders)
+        .map(
+            PARAM_RESOURCE_URLS,
+            (o, v) -> {
+                if (!v.isEmpty()) {
+                    o.setResourceUrls(v);
+                }
+            }
+        )
+        .map(
+            PARAM_RESOURCE_TIMEOUTS,
+            (o, v) -> {
+                if (o.getResourceUrls() != null) {
+                    o.setResourceTimeouts(v);
+                }
+            }
+        )
+        // android only
+        .string(PARAM_ANDROID_CUSTOM_HANDLER_CLASS, (o, v) -> o.setCustomHandlerClass(ConfigUtils.trimToNull(v)))
+        .bool(PARAM_ANDROID_HANDLE_RESULT_ON_NEW_INTENT, (o, v) -> o.setHandleResultOnNewIntent(v != null && v))
+        .bool(PARAM_ANDROID_HANDLE_RESULT_ON_ACTIVITY_RESULT, (o, v) -> o.setHandleResultOnActivityResult(v != null && v));
+
+    private static final OptionsBinder<OAuth2RefreshTokenOptions> REFRESH_TOKEN_OPTIONS_BINDER = new OptionsBinder<OAuth2RefreshTokenOptions>()
+        .string(PARAM_APP_ID, (o, v) -> o.setAppId(ConfigUtils.trimToNull(v)))
+        .string(PARAM_ACCESS_TOKEN_ENDPOINT, (o, v) -> o.setAccessTokenEndpoint(ConfigUtils.trimToNull(v)))
+        .string(PARAM_ISSUER, (o, v) -> o.setIssuer(ConfigUtils.trimToNull(v)))
+        .string(PARAM_SCOPE, (o, v) -> o.setScope(ConfigUtils.trimToNull(v)))
+        .string(PARAM_REFRESH_TOKEN, (o, v) -> o.setRefreshToken(ConfigUtils.trimToNull(v)));
+
     private OAuth2Options oauth2Options;
-    private AuthorizationService authService;
-    private AuthState authState;
+    private AuthorizationServiceHolder authServiceHolder;
+    // true while the browser flow (authenticate or logout) holds a reference on the shared AuthorizationService
+    private boolean flowServiceAcquired;
+    // holds a reference on the AuthorizationService until taken, discarded or expired
+    private PreparedAuthorization preparedAuthorization;
+    private final Runnable preparedAuthorizationExpiry = this::discardPreparedAuthorization;
+    private DiscoveryCache discoveryCache;
+    private IdTokenValidator idTokenValidator;
+    private ResourcePipeline resourcePipeline;
+    private ResourceHttpClient resourceHttpClient;
+    private RetryPolicy retryPolicy;
+    private CircuitBreakerRegistry circuitBreakers;
+    // delays the retries of token requests, AppAuth calls back on the main thread, and expires the prepared authorization
+    private Handler retryHandler;
+    // null if disabled
+    private ResourceCache resourceCache;
+    // session of the running authenticate flow
+    private OAuth2Session flowSession;
+    private LatencyRecorder.Trace flowTrace = LatencyRecorder.Trace.NONE;
     private String callbackId;
 
+    private OAuth2SessionRegistry sessions = new OAuth2SessionRegistry(DEFAULT_MAX_SESSIONS, this::onSessionEvicted);
+    private AuthStateStore authStateStore;
+    private ExecutorService authStateStoreExecutor;
+    // null once hydrated, read on the main thread without the lock
+    private volatile Future<Map<String, OAuth2Session>> storedSessions;
+    private TokenRefreshScheduler refreshScheduler;
+    private final TokenRequestCoalescer refreshCoalescer = new TokenRequestCoalescer();
+    private final AtomicLong accessTokenCacheHits = new AtomicLong();
+    private final AtomicLong accessTokenCacheMisses = new AtomicLong();
+    private final PkceGenerator pkceGenerator = new PkceGenerator();
+    private final CustomHandlerRegistry customHandlers = new CustomHandlerRegistry();
+    private LatencyRecorder latencyRecorder = new LatencyRecorder(false);
+
     public GenericOAuth2Plugin() {}
 
+    @Override
+    public void load() {
+        super.load();
+        this.resourcePipeline = new ResourcePipeline();
+        this.latencyRecorder = new LatencyRecorder(getConfig().getBoolean(CONFIG_LATENCY_METRICS_ENABLED, false));
+        // the first authenticate takes them from the pool
+        this.pkceGenerator.refill();
+        this.retryPolicy = new RetryPolicy(
+            getConfig().getInt(CONFIG_MAX_RETRIES, RetryPolicy.DEFAULT_MAX_RETRIES),
+            getConfig().getInt(CONFIG_RETRY_BASE_DELAY, (int) RetryPolicy.DEFAULT_BASE_DELAY),
+            getConfig().getInt(CONFIG_RETRY_MAX_DELAY, (int) RetryPolicy.DEFAULT_MAX_DELAY)
+        );
+        this.retryHandler = new Handler(Looper.getMainLooper());
+        this.circuitBreakers = new CircuitBreakerRegistry(
+            getConfig().getInt(CONFIG_CIRCUIT_BREAKER_THRESHOLD, CircuitBreakerRegistry.DEFAULT_FAILURE_THRESHOLD),
+            getConfig().getInt(CONFIG_CIRCUIT_BREAKER_OPEN_DURATION, (int) CircuitBreakerRegistry.DEFAULT_OPEN_DURATION)
+        );
+        this.resourceHttpClient = new ResourceHttpClient(
+            getConfig().getInt(CONFIG_RESOURCE_CONNECT_TIMEOUT, ResourceHttpClient.DEFAULT_CONNECT_TIMEOUT),
+            getConfig().getInt(CONFIG_RESOURCE_READ_TIMEOUT, ResourceHttpClient.DEFAULT_READ_TIMEOUT),
+            getConfig().getInt(CONFIG_RESOURCE_MAX_BODY_SIZE, (int) ResourceHttpClient.DEFAULT_MAX_BODY_SIZE),
+            this.retryPolicy,
+            this.circuitBreakers
+        );
+        ConnectionBuilder connectionBuilder = createTokenConnectionBuilder();
+        this.authServiceHolder = new AuthorizationServiceHolder(getContext(), connectionBuilder);
+        this.discoveryCache = new DiscoveryCache(getContext(), connectionBuilder, getLogTag());
+        this.idTokenValidator = new IdTokenValidator(this.discoveryCache, new JwksCache(connectionBuilder));
+        preloadCustomHandlers(getConfig().getArray(CONFIG_CUSTOM_HANDLER_CLASSES, new String[0]));
+        int resourceCacheSize = getConfig().getInt(CONFIG_RESOURCE_CACHE_SIZE, DEFAULT_RESOURCE_CACHE_SIZE);
+        // without the AndroidKeyStore the responses could only be stored in plain text
+        if (resourceCacheSize > 0 && KeystoreCipher.isSupported()) {
+            this.resourceCache = new ResourceCache(
+                new File(getContext().getCacheDir(), "GenericOAuth2Resources"),
+                resourceCacheSize,
+                getConfig().getBoolean(CONFIG_RESOURCE_CACHE_STALE_WHILE_REVALIDATE, false),
+                new KeystoreCipher(),
+                getLogTag()
+            );
+        }
+        this.sessions = new OAuth2SessionRegistry(getConfig().getInt(CONFIG_MAX_SESSIONS, DEFAULT_MAX_SESSIONS), this::onSessionEvicted);
+        this.authStateStore = createAuthStateStore();
+        if (this.authStateStore != null) {
+            this.authStateStoreExecutor = Executors.newSingleThreadExecutor();
+            // hydrate in the background, the first method needing a session waits for it
+            this.storedSessions = this.authStateStoreExecutor.submit(this::readStoredSessions);
+        }
+        double refreshAheadFraction = getConfig().getConfigJSON().optDouble(CONFIG_REFRESH_AHEAD_FRACTION, 0);
+        if (refreshAheadFraction > 0 && refreshAheadFraction < 1) {
+            this.refreshScheduler = new TokenRefreshScheduler(
+                key -> getBridge().executeOnMainThread(() -> refreshAhead(key)),
+                refreshAheadFraction,
+                getConfig().getConfigJSON().optDouble(CONFIG_REFRESH_AHEAD_JITTER, DEFAULT_REFRESH_AHEAD_JITTER)
+            );
+            if (this.storedSessions != null) {
+                // runs after the stored auth states are read, they are put into the registry here, not on the main thread
+                this.authStateStoreExecutor.execute(() -> {
+                    hydrateSessions();
+                    getBridge().executeOnMainThread(this::scheduleRefreshAhead);
+                });
+            }
+        }
+    }
+
     @PluginMethod
     public void refreshToken(final PluginCall call) {
-        disposeAuthService();
+        final LatencyRecorder.Trace trace = this.latencyRecorder.start(SystemClock.elapsedRealtime());
         OAuth2RefreshTokenOptions oAuth2RefreshTokenOptions = buildRefreshTokenOptions(call.getData());
 
         if (oAuth2RefreshTokenOptions.getAppId() == null) {
@@ -101,6 +312,19 @@ public class GenericOAuth2Plugin extends Plugin {
             return;
         }
 
+        AuthorizationServiceConfiguration discovered = null;
+        if (oAuth2RefreshTokenOptions.getIssuer() != null) {
+            try {
+                discovered = this.discoveryCache.get(oAuth2RefreshTokenOptions.getIssuer());
+            } catch (IOException e) {
+                call.reject(ERR_DISCOVERY_FAILED, e);
+                return;
+            }
+            if (oAuth2RefreshTokenOptions.getAccessTokenEndpoint() == null && discovered.tokenEndpoint != null) {
+                oAuth2RefreshTokenOptions.setAccessTokenEndpoint(discovered.tokenEndpoint.toString());
+            }
+        }
+
         if (oAuth2RefreshTokenOptions.getAccessTokenEndpoint() == null) {
             call.reject(ERR_PARAM_NO_ACCESS_TOKEN_ENDPOINT);
             return;
@@ -111,27 +335,38 @@ public class GenericOAuth2Plugin extends Plugin {
             return;
         }
 
-        this.authService = new AuthorizationService(getContext());
-
-        AuthorizationServiceConfiguration config = new AuthorizationServiceConfiguration(
-            Uri.parse(""),
-            Uri.parse(oAuth2RefreshTokenOptions.getAccessTokenEndpoint())
-        );
-
-        if (this.authState == null) {
-            this.authState = new AuthState(config);
+        AuthorizationServiceConfiguration config;
+        if (discovered != null) {
+            config = new AuthorizationServiceConfiguration(
+                discovered.authorizationEndpoint,
+                Uri.parse(oAuth2RefreshTokenOptions.getAccessTokenEndpoint()),
+                discovered.registrationEndpoint,
+                discovered.endSessionEndpoint
+            );
+        } else {
+            config = new AuthorizationServiceConfiguration(Uri.parse(""), Uri.parse(oAuth2RefreshTokenOptions.getAccessTokenEndpoint()));
         }
 
+        final OAuth2Session session = getRefreshSession(oAuth2RefreshTokenOptions);
+        session.getOrCreateAuthState(config);
+
         TokenRequest tokenRequest = new TokenRequest.Builder(config, oAuth2RefreshTokenOptions.getAppId())
             .setGrantType(GrantTypeValues.REFRESH_TOKEN)
             .setScope(oAuth2RefreshTokenOptions.getScope())
             .setRefreshToken(oAuth2RefreshTokenOptions.getRefreshToken())
             .build();
 
-        this.authService.performTokenRequest(
-                tokenRequest,
+        String refreshKey = TokenRequestCoalescer.refreshKey(
+            oAuth2RefreshTokenOptions.getAppId(),
+            oAuth2RefreshTokenOptions.getAccessTokenEndpoint(),
+            oAuth2RefreshTokenOptions.getRefreshToken()
+        );
+        // set before any callback, the executor runs synchronously if this call starts the request
+        final AtomicBoolean requested = new AtomicBoolean();
+        this.refreshCoalescer.execute(
+                refreshKey,
                 (response1, ex) -> {
-                    this.authState.update(response1, ex);
+                    trace.mark(LatencyRecorder.Phase.REFRESH_TOKEN_REQUEST, SystemClock.elapsedRealtime());
                     if (ex != null) {
                         String message = ex.error != null ? ex.error : ERR_GENERAL;
                         call.reject(message, String.valueOf(ex.code), ex);
@@ -139,7 +374,10 @@ public class GenericOAuth2Plugin extends Plugin {
                         if (response1 != null) {
                             try {
                                 JSObject json = new JSObject(response1.jsonSerializeString());
-                                call.resolve(json);
+                                json.put("coalesced", !requested.get());
+                                json.put("coalesced_count", this.refreshCoalescer.getCoalescedCount());
+                                trace.finish(LatencyRecorder.Phase.REFRESH_TOKEN_TOTAL, SystemClock.elapsedRealtime());
+                                call.resolve(trace.attachTo(json));
                             } catch (JSONException e) {
                                 call.reject(ERR_GENERAL, e);
                             }
@@ -147,29 +385,260 @@ public class GenericOAuth2Plugin extends Plugin {
                             call.reject(ERR_NO_ACCESS_TOKEN);
                         }
                     }
+                },
+                callback -> {
+                    requested.set(true);
+                    performTokenRequest(
+                        this.authServiceHolder.acquire(),
+                        tokenRequest,
+                        (response1, ex) -> {
+                            this.authServiceHolder.release();
+                            // might be discarded by a logout meanwhile
+                            if (!session.isDiscarded()) {
+                                session.update(response1, ex);
+                                if (ex == null) {
+                                    onAuthStateUpdated(session);
+                                }
+                            }
+                            callback.onTokenRequestCompleted(response1, ex);
+                        }
+                    );
+                }
+            );
+    }
+
+    @PluginMethod
+    public void getAccessToken(final PluginCall call) {
+        final OAuth2Session session = getAuthorizedSession(call, buildAuthenticateOptions(call.getData()));
+        if (session == null) {
+            return;
+        }
+        final AuthState state = session.getAuthState();
+
+        if (!state.getNeedsTokenRefresh()) {
+            accessTokenCacheHits.incrementAndGet();
+            call.resolve(buildAccessTokenResult(state.getAccessToken(), state.getIdToken(), state.getAccessTokenExpirationTime(), true));
+            return;
+        }
+
+        accessTokenCacheMisses.incrementAndGet();
+        if (state.getRefreshToken() == null || state.getLastTokenResponse() == null) {
+            call.reject(ERR_NO_ACCESS_TOKEN);
+            return;
+        }
+        // joins a refreshToken call or refresh ahead with the same refresh token
+        refreshSession(
+            session,
+            state,
+            (response, ex) -> {
+                if (ex != null) {
+                    String message = ex.error != null ? ex.error : ERR_GENERAL;
+                    call.reject(message, String.valueOf(ex.code), ex);
+                } else if (response == null || response.accessToken == null) {
+                    call.reject(ERR_NO_ACCESS_TOKEN);
+                } else {
+                    String idToken = response.idToken != null ? response.idToken : state.getIdToken();
+                    call.resolve(buildAccessTokenResult(response.accessToken, idToken, response.accessTokenExpirationTime, false));
+                }
+            }
+        );
+    }
+
+    @PluginMethod
+    public void request(final PluginCall call) {
+        String url = ConfigUtils.trimToNull(ConfigUtils.getParamString(call.getData(), PARAM_URL));
+        if (url == null) {
+            call.reject(ERR_PARAM_NO_URL);
+            return;
+        }
+        String method = ConfigUtils.getParam(String.class, call.getData(), PARAM_METHOD, ResourceRequestTask.METHOD_GET).toUpperCase(Locale.ROOT);
+        if (!ResourceRequestTask.isSupportedMethod(method)) {
+            call.reject(ERR_PARAM_INVALID_METHOD);
+            return;
+        }
+        OAuth2Options options = buildAuthenticateOptions(call.getData());
+        final OAuth2Session session = getAuthorizedSession(call, options);
+        if (session == null) {
+            return;
+        }
+        AuthState state = session.getAuthState();
+        boolean refreshFirst = state.getNeedsTokenRefresh();
+        if (refreshFirst && (state.getRefreshToken() == null || state.getLastTokenResponse() == null)) {
+            call.reject(ERR_NO_ACCESS_TOKEN);
+            return;
+        }
+        Map<String, String> headers = ConfigUtils.getParamMap(call.getData(), PARAM_HEADERS);
+        byte[] body = null;
+        Object data = call.getData().opt(PARAM_DATA);
+        if (data instanceof JSONObject || data instanceof JSONArray) {
+            body = data.toString().getBytes(StandardCharsets.UTF_8);
+            if (!containsHeader(headers, "Content-Type") && !containsHeader(options.getAdditionalResourceHeaders(), "Content-Type")) {
+                headers.put("Content-Type", "application/json; charset=utf-8");
+            }
+        } else if (data != null && data != JSONObject.NULL) {
+            body = data.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        runResourceTask(
+            call,
+            new ResourceRequestTask(
+                options,
+                getLogTag(),
+                this.resourceHttpClient,
+                method,
+                url,
+                headers,
+                body,
+                ConfigUtils.getParam(Integer.class, call.getData(), PARAM_TIMEOUT, 0),
+                accessTokenRefresher(session),
+                state.getAccessToken(),
+                refreshFirst
+            )
+        );
+    }
+
+    private static boolean containsHeader(Map<String, String> headers, String name) {
+        if (headers != null) {
+            for (String key : headers.keySet()) {
+                if (name.equalsIgnoreCase(key)) {
+                    return true;
                 }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the authorized session of the options or rejects the call.
+     * @return null if the call was rejected
+     */
+    private OAuth2Session getAuthorizedSession(PluginCall call, OAuth2Options options) {
+        if (options.getAppId() == null) {
+            call.reject(ERR_PARAM_NO_APP_ID);
+            return null;
+        }
+        try {
+            // the authorizationBaseUrl is part of the session key
+            applyDiscovery(options);
+        } catch (IOException e) {
+            call.reject(ERR_DISCOVERY_FAILED, e);
+            return null;
+        }
+        OAuth2Session session = getSession(
+            OAuth2Session.key(options.getAppId(), options.getAuthorizationBaseUrl(), options.getLoginHint()),
+            false
+        );
+        AuthState state = session != null ? session.getAuthState() : null;
+        if (state == null || !state.isAuthorized()) {
+            call.reject(ERR_NO_ACCESS_TOKEN);
+            return null;
+        }
+        return session;
+    }
+
+    @PluginMethod
+    public void getCircuitBreakerState(final PluginCall call) {
+        JSObject json = new JSObject();
+        json.put("endpoints", this.circuitBreakers.toJSArray(SystemClock.elapsedRealtime()));
+        call.resolve(json);
+    }
+
+    @PluginMethod
+    public void getLatencyMetrics(final PluginCall call) {
+        call.resolve(this.latencyRecorder.toJSObject());
+    }
+
+    @PluginMethod
+    public void prepareAuthentication(final PluginCall call) {
+        OAuth2Options options = buildAuthenticateOptions(call.getData());
+        if (options.getCustomHandlerClass() != null) {
+            // nothing to prepare, the custom handler does the login
+            call.resolve();
+            return;
+        }
+        AuthorizationServiceConfiguration discovered;
+        try {
+            discovered = applyDiscovery(options);
+        } catch (IOException e) {
+            call.reject(ERR_DISCOVERY_FAILED, e);
+            return;
+        }
+        String missingParam = getMissingAuthenticateParam(options);
+        if (missingParam != null) {
+            call.reject(missingParam);
+            return;
+        }
+        discardPreparedAuthorization();
+        try {
+            generateAuthorizationSecrets(options);
+            AuthorizationRequest req = buildAuthorizationRequest(options, discovered);
+            // keeps the service and its Custom Tabs connection until authenticate takes over
+            AuthorizationService service = this.authServiceHolder.acquire();
+            CustomTabsIntent customTabsIntent;
+            try {
+                // warms up the browser and lets it preload the login page, see CustomTabsSession#mayLaunchUrl
+                customTabsIntent = service.createCustomTabsIntentBuilder(req.toUri()).build();
+            } catch (RuntimeException e) {
+                this.authServiceHolder.release();
+                throw e;
+            }
+            setPreparedAuthorization(
+                new PreparedAuthorization(call.getData().toString(), options, req, customTabsIntent, SystemClock.elapsedRealtime())
             );
+            if (options.isLogsEnabled()) {
+                Log.i(getLogTag(), "Authentication prepared for " + options.getAuthorizationBaseUrl());
+            }
+            call.resolve();
+        } catch (Exception e) {
+            discardPreparedAuthorization();
+            call.reject(ERR_GENERAL, e);
+        }
     }
 
     @PluginMethod
     public void authenticate(final PluginCall call) {
+        releaseSupersededCall();
         this.callbackId = call.getCallbackId();
-        disposeAuthService();
+        final LatencyRecorder.Trace trace = this.latencyRecorder.start(SystemClock.elapsedRealtime());
+        releaseFlowService();
         oauth2Options = buildAuthenticateOptions(call.getData());
         if (oauth2Options.getCustomHandlerClass() != null) {
             if (oauth2Options.isLogsEnabled()) {
-                Log.i(getLogTag(), "Entering custom handler: " + oauth2Options.getCustomHandlerClass().getClass().getName());
+                Log.i(getLogTag(), "Entering custom handler: " + oauth2Options.getCustomHandlerClass());
             }
+            final OAuth2Options handlerOptions = oauth2Options;
             try {
-                Class<OAuth2CustomHandler> handlerClass = (Class<OAuth2CustomHandler>) Class.forName(oauth2Options.getCustomHandlerClass());
-                OAuth2CustomHandler handler = handlerClass.newInstance();
+                // the authorizationBaseUrl is part of the session key of the handler's tokens
+                applyDiscovery(handlerOptions);
+            } catch (IOException e) {
+                Log.w(getLogTag(), "Discovery failed, the custom handler's tokens are kept without issuer configuration", e);
+            }
+            try {
+                OAuth2CustomHandler handler = this.customHandlers.get(oauth2Options.getCustomHandlerClass());
                 handler.getAccessToken(
                     getActivity(),
                     call,
                     new AccessTokenCallback() {
                         @Override
                         public void onSuccess(String accessToken) {
-                            new ResourceUrlAsyncTask(call, oauth2Options, getLogTag(), null, null).execute(accessToken);
+                            trace.mark(LatencyRecorder.Phase.AUTHENTICATE_INTERACTION, SystemClock.elapsedRealtime());
+                            runResourceTask(
+                                call,
+                                new ResourceUrlTask(oauth2Options, getLogTag(), resourceHttpClient, null, null, null, null, null, accessToken),
+                                trace
+                            );
+                        }
+
+                        @Override
+                        public void onSuccess(AccessTokenResponse response) {
+                            if (response == null || response.getAccessToken() == null) {
+                                call.reject(ERR_NO_ACCESS_TOKEN);
+                            } else if (handlerOptions.getAppId() == null) {
+                                // there is no session without appId
+                                onSuccess(response.getAccessToken());
+                            } else {
+                                trace.mark(LatencyRecorder.Phase.AUTHENTICATE_INTERACTION, SystemClock.elapsedRealtime());
+                                onCustomHandlerTokens(call, handlerOptions, response, trace);
+                            }
                         }
 
                         @Override
@@ -183,163 +652,204 @@ public class GenericOAuth2Plugin extends Plugin {
                         }
                     }
                 );
-            } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
+            } catch (ReflectiveOperationException e) {
                 call.reject(ERR_CUSTOM_HANDLER_LOGIN, e);
             } catch (Exception e) {
                 call.reject(ERR_GENERAL, e);
             }
         } else {
-            // ###################################
-            // ### Validate required parameter ###
-            // ###################################
-
-            if (oauth2Options.getAppId() == null) {
-                call.reject(ERR_PARAM_NO_APP_ID);
-                return;
-            }
-
-            if (oauth2Options.getAuthorizationBaseUrl() == null) {
-                call.reject(ERR_PARAM_NO_AUTHORIZATION_BASE_URL);
-                return;
-            }
-
-            if (oauth2Options.getResponseType() == null) {
-                call.reject(ERR_PARAM_NO_RESPONSE_TYPE);
+            AuthorizationServiceConfiguration discovered;
+            try {
+                discovered = applyDiscovery(oauth2Options);
+            } catch (IOException e) {
+                call.reject(ERR_DISCOVERY_FAILED, e);
                 return;
             }
-
-            if (oauth2Options.getRedirectUrl() == null) {
-                call.reject(ERR_PARAM_NO_REDIRECT_URL);
+            String missingParam = getMissingAuthenticateParam(oauth2Options);
+            if (missingParam != null) {
+                call.reject(missingParam);
                 return;
             }
 
-            // ### Configure
-
-            Uri authorizationUri = Uri.parse(oauth2Options.getAuthorizationBaseUrl());
-            Uri accessTokenUri;
-            if (oauth2Options.getAccessTokenEndpoint() != null) {
-                accessTokenUri = Uri.parse(oauth2Options.getAccessTokenEndpoint());
+            AuthorizationRequest req;
+            CustomTabsIntent customTabsIntent = null;
+            PreparedAuthorization prepared = takePreparedAuthorization(call.getData());
+            if (prepared != null) {
+                // PKCE verifier, state and the warm Custom Tab session are ready since prepareAuthentication
+                oauth2Options = prepared.getOptions();
+                req = prepared.getRequest();
+                customTabsIntent = prepared.getCustomTabsIntent();
             } else {
-                // appAuth does not allow to be the accessTokenUri empty although it is not used unit performTokenRequest
-                accessTokenUri = authorizationUri;
-            }
-
-            AuthorizationServiceConfiguration config = new AuthorizationServiceConfiguration(authorizationUri, accessTokenUri);
-
-            if (this.authState == null) {
-                this.authState = new AuthState(config);
+                generateAuthorizationSecrets(oauth2Options);
+                req = buildAuthorizationRequest(oauth2Options, discovered);
             }
 
-            AuthorizationRequest.Builder builder = new AuthorizationRequest.Builder(
-                config,
-                oauth2Options.getAppId(),
-                oauth2Options.getResponseType(),
-                Uri.parse(oauth2Options.getRedirectUrl())
+            this.flowSession = getSession(
+                OAuth2Session.key(oauth2Options.getAppId(), oauth2Options.getAuthorizationBaseUrl(), oauth2Options.getLoginHint()),
+                true
             );
+            this.flowSession.getOrCreateAuthState(req.configuration);
 
-            // app auth always uses a state
-            if (oauth2Options.getState() != null) {
-                builder.setState(oauth2Options.getState());
-            }
-            builder.setScope(oauth2Options.getScope());
-            if (oauth2Options.isPkceEnabled()) {
-                builder.setCodeVerifier(oauth2Options.getPkceCodeVerifier());
-            } else {
-                builder.setCodeVerifier(null);
-            }
-            if (oauth2Options.getPrompt() != null) {
-                builder.setPrompt(oauth2Options.getPrompt());
-            }
-            if (oauth2Options.getLoginHint() != null) {
-                builder.setLoginHint(oauth2Options.getLoginHint());
-            }
-            if (oauth2Options.getResponseMode() != null) {
-                builder.setResponseMode(oauth2Options.getResponseMode());
-            }
-            if (oauth2Options.getDisplay() != null) {
-                builder.setDisplay(oauth2Options.getDisplay());
-            }
-
-            if (oauth2Options.getAdditionalParameters() != null) {
-                try {
-                    builder.setAdditionalParameters(oauth2Options.getAdditionalParameters());
-                } catch (IllegalArgumentException e) {
-                    // ignore all additional parameter on error
-                    Log.e(getLogTag(), "Additional parameter error", e);
-                }
-            }
-
-            AuthorizationRequest req = builder.build();
-
-            this.authService = new AuthorizationService(getContext());
             try {
-                Intent authIntent = this.authService.getAuthorizationRequestIntent(req);
+                AuthorizationService service = acquireFlowService();
+                // the flow holds its own reference now
+                releasePreparedService(prepared);
+                Intent authIntent = customTabsIntent != null
+                    ? service.getAuthorizationRequestIntent(req, customTabsIntent)
+                    : service.getAuthorizationRequestIntent(req);
                 this.bridge.saveCall(call);
+                this.flowTrace = trace;
                 startActivityForResult(call, authIntent, "handleIntentResult");
+                trace.mark(LatencyRecorder.Phase.AUTHENTICATE_LAUNCH, SystemClock.elapsedRealtime());
             } catch (ActivityNotFoundException e) {
+                releaseFlowService();
                 call.reject(ERR_ANDROID_NO_BROWSER, e);
             } catch (Exception e) {
+                releaseFlowService();
                 Log.e(getLogTag(), "Unexpected exception on open browser for authorization request!");
                 call.reject(ERR_GENERAL, e);
             }
         }
     }
 
+    /**
+     * Keeps the custom handler's tokens in the session like the ones of the authorization flow, so they are cached,
+     * persisted and refreshed at the accessTokenEndpoint, then loads the resource.
+     */
+    private void onCustomHandlerTokens(PluginCall call, OAuth2Options options, AccessTokenResponse tokens, LatencyRecorder.Trace trace) {
+        TokenResponse tokenResponse;
+        try {
+            tokenResponse = buildCustomHandlerTokenResponse(options, tokens);
+        } catch (RuntimeException e) {
+            call.reject(ERR_CUSTOM_HANDLER_LOGIN, e);
+            return;
+        }
+        final AuthState authState = new AuthState(tokenResponse.request.configuration);
+        authState.update(tokenResponse, null);
+        getSessionOnMainThread(
+            OAuth2Session.key(options.getAppId(), options.getAuthorizationBaseUrl(), options.getLoginHint()),
+            session -> {
+                // like the callbacks of AppAuth, the sessions are updated on the main thread
+                session.replaceAuthState(authState);
+                onAuthStateUpdated(session);
+                runResourceTask(
+                    call,
+                    new ResourceUrlTask(
+                        options,
+                        getLogTag(),
+                        this.resourceHttpClient,
+                        this.resourceCache,
+                        null,
+                        tokenResponse,
+                        options.getIssuer() != null ? this.idTokenValidator : null,
+                        accessTokenRefresher(session),
+                        tokens.getAccessToken()
+                    ),
+                    trace
+                );
+            }
+        );
+    }
+
+    private static TokenResponse buildCustomHandlerTokenResponse(OAuth2Options options, AccessTokenResponse tokens) {
+        Uri authorizationUri = options.getAuthorizationBaseUrl() != null ? Uri.parse(options.getAuthorizationBaseUrl()) : Uri.parse("");
+        Uri accessTokenUri = options.getAccessTokenEndpoint() != null ? Uri.parse(options.getAccessTokenEndpoint()) : Uri.parse("");
+        // without accessTokenEndpoint the refresh token would only let the refresh fail
+        String refreshToken = options.getAccessTokenEndpoint() != null ? tokens.getRefreshToken() : null;
+        TokenRequest request = new TokenRequest.Builder(new AuthorizationServiceConfiguration(authorizationUri, accessTokenUri), options.getAppId())
+            .setGrantType(refreshToken != null ? GrantTypeValues.REFRESH_TOKEN : CUSTOM_HANDLER_GRANT_TYPE)
+            .setRefreshToken(refreshToken)
+            .setScope(tokens.getScope())
+            .build();
+        return new TokenResponse.Builder(request)
+            .setTokenType(TokenResponse.TOKEN_TYPE_BEARER)
+            .setAccessToken(tokens.getAccessToken())
+            .setAccessTokenExpirationTime(tokens.getAccessTokenExpirationTime())
+            .setRefreshToken(refreshToken)
+            .setIdToken(tokens.getIdToken())
+            .setScope(tokens.getScope())
+            .build();
+    }
+
     @PluginMethod
     public void logout(final PluginCall call) {
+        final LatencyRecorder.Trace trace = this.latencyRecorder.start(SystemClock.elapsedRealtime());
         String customHandlerClassname = ConfigUtils.getParam(String.class, call.getData(), PARAM_ANDROID_CUSTOM_HANDLER_CLASS);
         if (customHandlerClassname != null && customHandlerClassname.length() > 0) {
             try {
-                Class<OAuth2CustomHandler> handlerClass = (Class<OAuth2CustomHandler>) Class.forName(customHandlerClassname);
-                OAuth2CustomHandler handler = handlerClass.newInstance();
-                boolean successful = handler.logout(getActivity(), call);
-                if (successful) {
-                    call.resolve();
-                } else {
-                    call.reject(ERR_CUSTOM_HANDLER_LOGOUT);
-                }
-            } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
+                OAuth2CustomHandler handler = this.customHandlers.get(customHandlerClassname);
+                // the handler's tokens are kept in the sessions too, they are gone even if the handler's logout fails
+                discardLogoutSessions(buildAuthenticateOptions(call.getData()));
+                handler.logout(
+                    getActivity(),
+                    call,
+                    new LogoutCallback() {
+                        @Override
+                        public void onSuccess() {
+                            trace.finish(LatencyRecorder.Phase.LOGOUT_TOTAL, SystemClock.elapsedRealtime());
+                            resolve(call, trace);
+                        }
+
+                        @Override
+                        public void onError(Exception error) {
+                            if (error != null) {
+                                call.reject(ERR_CUSTOM_HANDLER_LOGOUT, error);
+                            } else {
+                                call.reject(ERR_CUSTOM_HANDLER_LOGOUT);
+                            }
+                        }
+                    }
+                );
+            } catch (ReflectiveOperationException e) {
                 call.reject(ERR_CUSTOM_HANDLER_LOGOUT, e);
             } catch (Exception e) {
                 call.reject(ERR_GENERAL, e);
             }
         } else {
             String idToken = ConfigUtils.getParam(String.class, call.getData(), PARAM_ID_TOKEN);
+            OAuth2Options logoutOptions = buildAuthenticateOptions(call.getData());
+            // the local state is gone even if the provider cannot be reached, it needs no discovery
+            if (!discardLogoutSessions(logoutOptions)) {
+                call.reject(ERR_PARAM_NO_APP_ID);
+                return;
+            }
             if (idToken == null) {
-                this.disposeAuthService();
-                this.discardAuthState();
-                call.resolve();
+                trace.finish(LatencyRecorder.Phase.LOGOUT_TOTAL, SystemClock.elapsedRealtime());
+                resolve(call, trace);
                 return;
             }
 
-            oauth2Options = buildAuthenticateOptions(call.getData());
-
-            Uri authorizationUri = Uri.parse(oauth2Options.getAuthorizationBaseUrl());
-            Uri accessTokenUri;
-            if (oauth2Options.getAccessTokenEndpoint() != null) {
-                accessTokenUri = Uri.parse(oauth2Options.getAccessTokenEndpoint());
-            } else {
-                // appAuth does not allow to be the accessTokenUri empty although it is not used unit performTokenRequest
-                accessTokenUri = authorizationUri;
+            AuthorizationServiceConfiguration discovered;
+            try {
+                discovered = applyDiscovery(logoutOptions);
+            } catch (IOException e) {
+                call.reject(ERR_DISCOVERY_FAILED, e);
+                return;
             }
+            oauth2Options = logoutOptions;
+
             Uri logoutUri = Uri.parse(oauth2Options.getLogoutUrl());
 
-            AuthorizationServiceConfiguration config = new AuthorizationServiceConfiguration(authorizationUri, accessTokenUri);
+            // the end session endpoint is only known from the discovery document
+            AuthorizationServiceConfiguration config = buildServiceConfiguration(oauth2Options, discovered);
 
             EndSessionRequest endSessionRequest = new EndSessionRequest.Builder(config)
                 .setIdTokenHint(idToken)
                 .setPostLogoutRedirectUri(logoutUri)
                 .build();
 
-            this.authService = new AuthorizationService(getContext());
-
+            releaseFlowService();
             try {
-                Intent endSessionIntent = authService.getEndSessionRequestIntent(endSessionRequest);
+                Intent endSessionIntent = acquireFlowService().getEndSessionRequestIntent(endSessionRequest);
                 this.bridge.saveCall(call);
+                this.flowTrace = trace;
                 startActivityForResult(call, endSessionIntent, "handleEndSessionIntentResult");
+                trace.mark(LatencyRecorder.Phase.LOGOUT_LAUNCH, SystemClock.elapsedRealtime());
             } catch (ActivityNotFoundException e) {
+                releaseFlowService();
                 call.reject(ERR_ANDROID_NO_BROWSER, e);
             } catch (Exception e) {
+                releaseFlowService();
                 Log.e(getLogTag(), "Unexpected exception on open browser for logout request!");
                 call.reject(ERR_GENERAL, e);
             }
@@ -355,6 +865,7 @@ public class GenericOAuth2Plugin extends Plugin {
             if (savedCall == null) {
                 return;
             }
+            releaseFlowService();
             handleAuthorizationRequestActivity(intent, savedCall);
         }
     }
@@ -362,6 +873,7 @@ public class GenericOAuth2Plugin extends Plugin {
     @ActivityCallback
     private void handleIntentResult(PluginCall call, ActivityResult result) {
         if (this.oauth2Options != null && this.oauth2Options.isHandleResultOnActivityResult()) {
+            releaseFlowService();
             if (result.getResultCode() == Activity.RESULT_CANCELED) {
                 call.reject(USER_CANCELLED);
             } else {
@@ -372,6 +884,7 @@ public class GenericOAuth2Plugin extends Plugin {
 
     @ActivityCallback
     private void handleEndSessionIntentResult(PluginCall call, ActivityResult result) {
+        releaseFlowService();
         if (result.getResultCode() == Activity.RESULT_CANCELED) {
             call.reject(USER_CANCELLED);
         } else {
@@ -380,10 +893,10 @@ public class GenericOAuth2Plugin extends Plugin {
                     EndSessionResponse resp = EndSessionResponse.fromIntent(result.getData());
                     JSObject json = new JSObject(resp.jsonSerializeString());
 
-                    this.disposeAuthService();
-                    this.discardAuthState();
-
-                    call.resolve(json);
+                    long now = SystemClock.elapsedRealtime();
+                    this.flowTrace.mark(LatencyRecorder.Phase.LOGOUT_INTERACTION, now);
+                    this.flowTrace.finish(LatencyRecorder.Phase.LOGOUT_TOTAL, now);
+                    call.resolve(this.flowTrace.attachTo(json));
                 } catch (Exception e) {
                     Log.e(getLogTag(), "Unexpected exception on handling result for logout request!");
                     call.reject(ERR_GENERAL, e);
@@ -394,14 +907,20 @@ public class GenericOAuth2Plugin extends Plugin {
     }
 
     void handleAuthorizationRequestActivity(Intent intent, PluginCall savedCall) {
+        final LatencyRecorder.Trace trace = this.flowTrace;
+        trace.mark(LatencyRecorder.Phase.AUTHENTICATE_INTERACTION, SystemClock.elapsedRealtime());
         // there are valid situation when the Intent is null, but
         if (intent != null) {
+            final OAuth2Session session = this.flowSession;
             AuthorizationResponse authorizationResponse;
             AuthorizationException error;
             try {
                 authorizationResponse = AuthorizationResponse.fromIntent(intent);
                 error = AuthorizationException.fromIntent(intent);
-                this.authState.update(authorizationResponse, error);
+                session.update(authorizationResponse, error);
+                if (error == null) {
+                    onAuthStateUpdated(session);
+                }
             } catch (Exception e) {
                 savedCall.reject(ERR_GENERAL, e);
                 return;
@@ -432,45 +951,59 @@ public class GenericOAuth2Plugin extends Plugin {
                 // if there is a tokenEndpoint configured try to get the accessToken from it.
                 // it might be already in the authorizationResponse but tokenEndpoint might deliver other tokens.
                 if (oauth2Options.getAccessTokenEndpoint() != null) {
-                    this.authService = new AuthorizationService(getContext());
+                    final AuthorizationService tokenService = this.authServiceHolder.acquire();
                     TokenRequest tokenExchangeRequest;
                     try {
                         tokenExchangeRequest = authorizationResponse.createTokenExchangeRequest();
-                        this.authService.performTokenRequest(
-                                tokenExchangeRequest,
-                                (accessTokenResponse, exception) -> {
-                                    authState.update(accessTokenResponse, exception);
-                                    if (exception != null) {
-                                        savedCall.reject(ERR_AUTHORIZATION_FAILED, String.valueOf(exception.code), exception);
-                                    } else {
-                                        if (accessTokenResponse != null) {
-                                            if (oauth2Options.isLogsEnabled()) {
-                                                Log.i(getLogTag(), "Access token response:\n" + accessTokenResponse.jsonSerializeString());
-                                            }
-                                            authState.performActionWithFreshTokens(
-                                                authService,
-                                                (accessToken, idToken, ex1) -> {
-                                                    AsyncTask<String, Void, ResourceCallResult> asyncTask = new ResourceUrlAsyncTask(
-                                                        savedCall,
-                                                        oauth2Options,
-                                                        getLogTag(),
-                                                        authorizationResponse,
-                                                        accessTokenResponse
-                                                    );
-                                                    asyncTask.execute(accessToken);
-                                                }
-                                            );
-                                        } else {
-                                            resolveAuthorizationResponse(savedCall, authorizationResponse);
+                        performTokenRequest(
+                            tokenService,
+                            tokenExchangeRequest,
+                            (accessTokenResponse, exception) -> {
+                                trace.mark(LatencyRecorder.Phase.AUTHENTICATE_TOKEN_EXCHANGE, SystemClock.elapsedRealtime());
+                                session.update(accessTokenResponse, exception);
+                                if (exception == null) {
+                                    onAuthStateUpdated(session);
+                                }
+                                if (exception != null) {
+                                    this.authServiceHolder.release();
+                                    savedCall.reject(ERR_AUTHORIZATION_FAILED, String.valueOf(exception.code), exception);
+                                } else {
+                                    if (accessTokenResponse != null) {
+                                        if (oauth2Options.isLogsEnabled()) {
+                                            Log.i(getLogTag(), "Access token response:\n" + accessTokenResponse.jsonSerializeString());
                                         }
+                                        session.getAuthState().performActionWithFreshTokens(
+                                            tokenService,
+                                            (accessToken, idToken, ex1) -> {
+                                                trace.mark(LatencyRecorder.Phase.AUTHENTICATE_FRESH_TOKENS, SystemClock.elapsedRealtime());
+                                                this.authServiceHolder.release();
+                                                ResourceUrlTask resourceTask = new ResourceUrlTask(
+                                                    oauth2Options,
+                                                    getLogTag(),
+                                                    this.resourceHttpClient,
+                                                    this.resourceCache,
+                                                    authorizationResponse,
+                                                    accessTokenResponse,
+                                                    oauth2Options.getIssuer() != null ? this.idTokenValidator : null,
+                                                    accessTokenRefresher(session),
+                                                    accessToken
+                                                );
+                                                runResourceTask(savedCall, resourceTask, trace);
+                                            }
+                                        );
+                                    } else {
+                                        this.authServiceHolder.release();
+                                        resolveAuthorizationResponse(savedCall, authorizationResponse, trace);
                                     }
                                 }
-                            );
+                            }
+                        );
                     } catch (Exception e) {
+                        this.authServiceHolder.release();
                         savedCall.reject(ERR_NO_AUTHORIZATION_CODE, e);
                     }
                 } else {
-                    resolveAuthorizationResponse(savedCall, authorizationResponse);
+                    resolveAuthorizationResponse(savedCall, authorizationResponse, trace);
                 }
             } else {
                 savedCall.reject(ERR_NO_AUTHORIZATION_CODE);
@@ -483,98 +1016,768 @@ public class GenericOAuth2Plugin extends Plugin {
         }
     }
 
-    private void resolveAuthorizationResponse(PluginCall savedCall, AuthorizationResponse authorizationResponse) {
+    /**
+     * Releases the saved call of the previous authenticate. If its resource task is still running, the task is cancelled
+     * and the call rejected, the new authenticate replaces its tokens anyway.
+     */
+    private void releaseSupersededCall() {
+        if (this.callbackId == null) {
+            return;
+        }
+        PluginCall previous = this.bridge.getSavedCall(this.callbackId);
+        if (this.resourcePipeline.cancel(this.callbackId) && previous != null) {
+            previous.reject(USER_CANCELLED);
+        }
+        if (previous != null) {
+            this.bridge.releaseCall(previous);
+        }
+    }
+
+    private void runResourceTask(final PluginCall call, Callable<ResourceCallResult> task) {
+        runResourceTask(call, task, LatencyRecorder.Trace.NONE);
+    }
+
+    /**
+     * @param trace of the authenticate call loading the resource
+     */
+    private void runResourceTask(final PluginCall call, Callable<ResourceCallResult> task, final LatencyRecorder.Trace trace) {
+        this.resourcePipeline.submit(
+                call.getCallbackId(),
+                task,
+                result -> {
+                    // the task leaves the response null if the resource could not be loaded or parsed
+                    if (!result.isError() && result.getResponse() != null) {
+                        long now = SystemClock.elapsedRealtime();
+                        trace.mark(LatencyRecorder.Phase.AUTHENTICATE_RESOURCE, now);
+                        trace.finish(LatencyRecorder.Phase.AUTHENTICATE_TOTAL, now);
+                        trace.attachTo(result.getResponse());
+                    }
+                    resolveResourceCallResult(call, result);
+                },
+                e -> {
+                    Log.e(getLogTag(), "Unexpected error", e);
+                    call.reject(ERR_GENERAL, e);
+                }
+            );
+    }
+
+    private void resolveResourceCallResult(PluginCall call, ResourceCallResult result) {
+        if (!result.isError()) {
+            call.resolve(result.getResponse());
+        } else {
+            String errorCode = result.getErrorCode() != null ? result.getErrorCode() : ERR_GENERAL;
+            if (result.getErrorMsg() != null) {
+                Log.e(getLogTag(), result.getErrorMsg());
+            }
+            call.reject(errorCode, result.getErrorMsg());
+        }
+    }
+
+    /**
+     * Resolves without data like before unless the latency is recorded.
+     */
+    private static void resolve(PluginCall call, LatencyRecorder.Trace trace) {
+        if (trace.isRecording()) {
+            call.resolve(trace.attachTo(new JSObject()));
+        } else {
+            call.resolve();
+        }
+    }
+
+    private void resolveAuthorizationResponse(PluginCall savedCall, AuthorizationResponse authorizationResponse, LatencyRecorder.Trace trace) {
         JSObject json = new JSObject();
         OAuth2Utils.assignResponses(json, null, authorizationResponse, null);
-        savedCall.resolve(json);
+        trace.finish(LatencyRecorder.Phase.AUTHENTICATE_TOTAL, SystemClock.elapsedRealtime());
+        savedCall.resolve(trace.attachTo(json));
     }
 
     OAuth2Options buildAuthenticateOptions(JSObject callData) {
-        OAuth2Options o = new OAuth2Options();
-        // required
-        o.setAppId(ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_APP_ID)));
-        o.setAuthorizationBaseUrl(
-            ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_AUTHORIZATION_BASE_URL))
+        OAuth2Options o = AUTHENTICATE_OPTIONS_BINDER.bind(callData, new OAuth2Options());
+        if (!o.isHandleResultOnNewIntent() && !o.isHandleResultOnActivityResult()) {
+            o.setHandleResultOnActivityResult(true);
+        }
+        return o;
+    }
+
+    /**
+     * Sets the PKCE verifier and a generated state if missing, right before the authorization request is built, so the
+     * pool is only drawn from by calls that send one.
+     */
+    void generateAuthorizationSecrets(OAuth2Options o) {
+        boolean pkceMissing = o.isPkceEnabled() && o.getPkceCodeVerifier() == null;
+        if (!pkceMissing && o.getState() != null) {
+            return;
+        }
+        PkceGenerator.Pkce pkce = this.pkceGenerator.take();
+        if (pkceMissing) {
+            o.setPkceCodeVerifier(pkce.codeVerifier);
+            o.setPkceCodeChallenge(pkce.codeChallenge);
+        }
+        if (o.getState() == null) {
+            o.setState(pkce.state);
+        }
+    }
+
+    private static void setAdditionalParameters(OAuth2Options o, Map<String, String> additionalParameters) {
+        for (Map.Entry<String, String> entry : additionalParameters.entrySet()) {
+            String key = entry.getKey();
+            if (PARAM_DISPLAY.equals(key)) {
+                o.setDisplay(entry.getValue());
+            } else if (PARAM_LOGIN_HINT.equals(key)) {
+                o.setLoginHint(entry.getValue());
+            } else if (PARAM_PROMPT.equals(key)) {
+                o.setPrompt(entry.getValue());
+            } else if (PARAM_RESPONSE_MODE.equals(key)) {
+                o.setResponseMode(entry.getValue());
+            } else {
+                o.addAdditionalParameter(key, entry.getValue());
+            }
+        }
+    }
+
+    OAuth2RefreshTokenOptions buildRefreshTokenOptions(JSObject callData) {
+        return REFRESH_TOKEN_OPTIONS_BINDER.bind(callData, new OAuth2RefreshTokenOptions());
+    }
+
+    @Override
+    protected void handleOnStart() {
+        super.handleOnStart();
+        this.authServiceHolder.onStart();
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        // the scheduler does not run while the device sleeps so the refresh might be overdue
+        scheduleRefreshAhead();
+    }
+
+    @Override
+    protected void handleOnStop() {
+        super.handleOnStop();
+        // the warm-up is of no use once the app is in the background
+        discardPreparedAuthorization();
+        // a running flow keeps the service, e.g. the app is stopped while the Custom Tab is shown
+        this.authServiceHolder.onStop();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        discardPreparedAuthorization();
+        releaseFlowService();
+        this.authServiceHolder.dispose();
+        this.discoveryCache.shutdown();
+        this.retryHandler.removeCallbacksAndMessages(null);
+        this.pkceGenerator.shutdown();
+        // the calls cannot be resolved anymore
+        this.resourcePipeline.shutdown();
+        this.resourceHttpClient.shutdown();
+        if (this.resourceCache != null) {
+            this.resourceCache.shutdown();
+        }
+        if (this.refreshScheduler != null) {
+            this.refreshScheduler.shutdown();
+        }
+        if (this.authStateStoreExecutor != null) {
+            // pending writes are still executed
+            this.authStateStoreExecutor.shutdown();
+        }
+    }
+
+    private String getMissingAuthenticateParam(OAuth2Options options) {
+        if (options.getAppId() == null) {
+            return ERR_PARAM_NO_APP_ID;
+        }
+        if (options.getAuthorizationBaseUrl() == null) {
+            return ERR_PARAM_NO_AUTHORIZATION_BASE_URL;
+        }
+        if (options.getResponseType() == null) {
+            return ERR_PARAM_NO_RESPONSE_TYPE;
+        }
+        if (options.getRedirectUrl() == null) {
+            return ERR_PARAM_NO_REDIRECT_URL;
+        }
+        return null;
+    }
+
+    /**
+     * Fills the endpoints missing in the options from the discovery document of the issuer.
+     * @return the discovered configuration or null if there is no issuer
+     */
+    private AuthorizationServiceConfiguration applyDiscovery(OAuth2Options options) throws IOException {
+        if (options.getIssuer() == null) {
+            return null;
+        }
+        AuthorizationServiceConfiguration discovered = this.discoveryCache.get(options.getIssuer());
+        if (options.getAuthorizationBaseUrl() == null) {
+            options.setAuthorizationBaseUrl(discovered.authorizationEndpoint.toString());
+        }
+        // a configured accessTokenEndpoint triggers the code exchange, which the implicit flow must not do
+        boolean codeFlow = options.getResponseType() != null && options.getResponseType().contains("code");
+        if (codeFlow && options.getAccessTokenEndpoint() == null && discovered.tokenEndpoint != null) {
+            options.setAccessTokenEndpoint(discovered.tokenEndpoint.toString());
+        }
+        return discovered;
+    }
+
+    private AuthorizationServiceConfiguration buildServiceConfiguration(OAuth2Options options, AuthorizationServiceConfiguration discovered) {
+        Uri authorizationUri = Uri.parse(options.getAuthorizationBaseUrl());
+        Uri accessTokenUri;
+        if (options.getAccessTokenEndpoint() != null) {
+            accessTokenUri = Uri.parse(options.getAccessTokenEndpoint());
+        } else {
+            // appAuth does not allow to be the accessTokenUri empty although it is not used unit performTokenRequest
+            accessTokenUri = authorizationUri;
+        }
+        if (discovered == null) {
+            return new AuthorizationServiceConfiguration(authorizationUri, accessTokenUri);
+        }
+        return new AuthorizationServiceConfiguration(
+            authorizationUri,
+            accessTokenUri,
+            discovered.registrationEndpoint,
+            discovered.endSessionEndpoint
         );
-        o.setResponseType(ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_RESPONSE_TYPE)));
-        o.setRedirectUrl(ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_REDIRECT_URL)));
+    }
 
-        // optional
-        Boolean logsEnabled = ConfigUtils.getOverwrittenAndroidParam(Boolean.class, callData, PARAM_LOGS_ENABLED);
-        o.setLogsEnabled(logsEnabled != null && logsEnabled);
-        o.setResourceUrl(ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_RESOURCE_URL)));
-        o.setAccessTokenEndpoint(
-            ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_ACCESS_TOKEN_ENDPOINT))
+    private AuthorizationRequest buildAuthorizationRequest(OAuth2Options oauth2Options, AuthorizationServiceConfiguration discovered) {
+        AuthorizationRequest.Builder builder = new AuthorizationRequest.Builder(
+            buildServiceConfiguration(oauth2Options, discovered),
+            oauth2Options.getAppId(),
+            oauth2Options.getResponseType(),
+            Uri.parse(oauth2Options.getRedirectUrl())
         );
-        Boolean pkceEnabledObj = ConfigUtils.getOverwrittenAndroidParam(Boolean.class, callData, PARAM_PKCE_ENABLED);
-        o.setPkceEnabled(pkceEnabledObj != null && pkceEnabledObj);
-        if (o.isPkceEnabled()) {
-            o.setPkceCodeVerifier(ConfigUtils.getRandomString(64));
+
+        // app auth always uses a state
+        if (oauth2Options.getState() != null) {
+            builder.setState(oauth2Options.getState());
+        }
+        builder.setScope(oauth2Options.getScope());
+        if (oauth2Options.isPkceEnabled() && oauth2Options.getPkceCodeChallenge() != null) {
+            // computed in the background by the PkceGenerator
+            builder.setCodeVerifier(
+                oauth2Options.getPkceCodeVerifier(),
+                oauth2Options.getPkceCodeChallenge(),
+                AuthorizationRequest.CODE_CHALLENGE_METHOD_S256
+            );
+        } else if (oauth2Options.isPkceEnabled()) {
+            builder.setCodeVerifier(oauth2Options.getPkceCodeVerifier());
+        } else {
+            builder.setCodeVerifier(null);
+        }
+        if (oauth2Options.getPrompt() != null) {
+            builder.setPrompt(oauth2Options.getPrompt());
+        }
+        if (oauth2Options.getLoginHint() != null) {
+            builder.setLoginHint(oauth2Options.getLoginHint());
+        }
+        if (oauth2Options.getResponseMode() != null) {
+            builder.setResponseMode(oauth2Options.getResponseMode());
+        }
+        if (oauth2Options.getDisplay() != null) {
+            builder.setDisplay(oauth2Options.getDisplay());
         }
 
-        o.setScope(ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_SCOPE)));
-        o.setState(ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_STATE)));
-        if (o.getState() == null) {
-            o.setState(ConfigUtils.getRandomString(20));
-        }
-
-        Map<String, String> additionalParameters = ConfigUtils.getOverwrittenAndroidParamMap(callData, PARAM_ADDITIONAL_PARAMETERS);
-        if (!additionalParameters.isEmpty()) {
-            for (Map.Entry<String, String> entry : additionalParameters.entrySet()) {
-                String key = entry.getKey();
-                if (PARAM_DISPLAY.equals(key)) {
-                    o.setDisplay(entry.getValue());
-                } else if (PARAM_LOGIN_HINT.equals(key)) {
-                    o.setLoginHint(entry.getValue());
-                } else if (PARAM_PROMPT.equals(key)) {
-                    o.setPrompt(entry.getValue());
-                } else if (PARAM_RESPONSE_MODE.equals(key)) {
-                    o.setResponseMode(entry.getValue());
-                } else {
-                    o.addAdditionalParameter(key, entry.getValue());
+        if (oauth2Options.getAdditionalParameters() != null) {
+            try {
+                builder.setAdditionalParameters(oauth2Options.getAdditionalParameters());
+            } catch (IllegalArgumentException e) {
+                // ignore all additional parameter on error
+                Log.e(getLogTag(), "Additional parameter error", e);
+            }
+        }
+
+        return builder.build();
+    }
+
+    // synchronized as the expiry and handleOnStop run on the main thread, prepareAuthentication and authenticate on the plugin thread
+    private synchronized void setPreparedAuthorization(PreparedAuthorization prepared) {
+        discardPreparedAuthorization();
+        this.preparedAuthorization = prepared;
+        // releases the Custom Tabs connection if authenticate does not follow
+        this.retryHandler.postDelayed(this.preparedAuthorizationExpiry, PREPARED_AUTHORIZATION_MAX_AGE);
+    }
+
+    private synchronized PreparedAuthorization takePreparedAuthorization(JSObject callData) {
+        PreparedAuthorization prepared = this.preparedAuthorization;
+        this.preparedAuthorization = null;
+        this.retryHandler.removeCallbacks(this.preparedAuthorizationExpiry);
+        if (prepared != null && !prepared.matches(callData.toString(), SystemClock.elapsedRealtime(), PREPARED_AUTHORIZATION_MAX_AGE)) {
+            releasePreparedService(prepared);
+            return null;
+        }
+        return prepared;
+    }
+
+    private synchronized void discardPreparedAuthorization() {
+        releasePreparedService(this.preparedAuthorization);
+        this.preparedAuthorization = null;
+        if (this.retryHandler != null) {
+            this.retryHandler.removeCallbacks(this.preparedAuthorizationExpiry);
+        }
+    }
+
+    private void releasePreparedService(PreparedAuthorization prepared) {
+        if (prepared != null) {
+            this.authServiceHolder.release();
+        }
+    }
+
+    private AuthorizationService acquireFlowService() {
+        AuthorizationService service = this.authServiceHolder.acquire();
+        this.flowServiceAcquired = true;
+        return service;
+    }
+
+    private void releaseFlowService() {
+        if (this.flowServiceAcquired) {
+            this.flowServiceAcquired = false;
+            this.authServiceHolder.release();
+        }
+    }
+
+    private void discardSession(OAuth2Session session) {
+        if (session == null) {
+            return;
+        }
+        removeCachedResources(session.getAuthState());
+        session.discard();
+        this.sessions.remove(session.getKey());
+        if (this.authStateStore != null) {
+            this.authStateStoreExecutor.execute(() -> this.authStateStore.remove(session.getKey()));
+        }
+        if (this.refreshScheduler != null) {
+            this.refreshScheduler.cancel(session.getKey());
+        }
+    }
+
+    /**
+     * Removes the cached resource responses of the auth state's user, the ones of other sessions stay.
+     */
+    private void removeCachedResources(AuthState authState) {
+        if (this.resourceCache != null && authState != null) {
+            this.resourceCache.removeSubject(ResourceCache.subjectOf(authState.getIdToken()));
+        }
+    }
+
+    /**
+     * Discards the sessions a logout with these options is about, the ones of the login hint's account or of the whole app.
+     * @return false without appId, nothing is discarded then as it would match the sessions of every app
+     */
+    boolean discardLogoutSessions(OAuth2Options logoutOptions) {
+        if (ConfigUtils.trimToNull(logoutOptions.getAppId()) == null) {
+            return false;
+        }
+        discardSessions(logoutOptions.getAppId(), logoutOptions.getLoginHint());
+        return true;
+    }
+
+    OAuth2SessionRegistry getSessionRegistry() {
+        return this.sessions;
+    }
+
+    /**
+     * Discards the sessions of the account or, without account hint, every session of the app incl. the ones created by
+     * refreshToken. Stored auth states not loaded into memory are removed too.
+     */
+    private void discardSessions(final String appId, final String accountHint) {
+        // otherwise the stored auth states would be loaded after the logout
+        hydrateSessions();
+        final Set<String> discarded = new HashSet<>();
+        for (OAuth2Session session : this.sessions.getSessions()) {
+            if (OAuth2Session.belongsTo(session.getKey(), appId, accountHint)) {
+                discardSession(session);
+                discarded.add(session.getKey());
+            }
+        }
+        if (this.authStateStore != null) {
+            this.authStateStoreExecutor.execute(() -> {
+                for (String key : this.authStateStore.keys()) {
+                    if (OAuth2Session.belongsTo(key, appId, accountHint)) {
+                        if (!discarded.contains(key)) {
+                            // evicted from memory, its user is only known from the stored auth state
+                            OAuth2Session stored = readStoredSession(key);
+                            if (stored != null) {
+                                removeCachedResources(stored.getAuthState());
+                            }
+                        }
+                        this.authStateStore.remove(key);
+                    }
                 }
+            });
+        }
+    }
+
+    private void onSessionEvicted(OAuth2Session session) {
+        // only dropped from memory, a persisted auth state is loaded again on the next access and its cached responses stay
+        if (this.refreshScheduler != null) {
+            this.refreshScheduler.cancel(session.getKey());
+        }
+    }
+
+    /**
+     * Blocks while the stored auth state is read from the disk and decrypted, so it is not called on the main thread.
+     */
+    private OAuth2Session getSession(String key, boolean create) {
+        hydrateSessions();
+        OAuth2Session session = this.sessions.get(key);
+        if (session == null && this.authStateStore != null) {
+            OAuth2Session stored = null;
+            try {
+                stored = this.authStateStoreExecutor.submit(() -> readStoredSession(key)).get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(getLogTag(), "Stored auth state could not be loaded!", e);
+            }
+            if (stored != null) {
+                session = this.sessions.putIfAbsent(stored);
             }
         }
-        o.setAdditionalResourceHeaders(ConfigUtils.getOverwrittenAndroidParamMap(callData, PARAM_ADDITIONAL_RESOURCE_HEADERS));
-        // android only
-        o.setCustomHandlerClass(ConfigUtils.trimToNull(ConfigUtils.getParamString(callData, PARAM_ANDROID_CUSTOM_HANDLER_CLASS)));
-        o.setHandleResultOnNewIntent(ConfigUtils.getParam(Boolean.class, callData, PARAM_ANDROID_HANDLE_RESULT_ON_NEW_INTENT, false));
-        o.setHandleResultOnActivityResult(
-            ConfigUtils.getParam(Boolean.class, callData, PARAM_ANDROID_HANDLE_RESULT_ON_ACTIVITY_RESULT, false)
-        );
-        if (!o.isHandleResultOnNewIntent() && !o.isHandleResultOnActivityResult()) {
-            o.setHandleResultOnActivityResult(true);
+        if (session == null && create) {
+            session = this.sessions.getOrCreate(key);
         }
-        return o;
+        return session;
     }
 
-    OAuth2RefreshTokenOptions buildRefreshTokenOptions(JSObject callData) {
-        OAuth2RefreshTokenOptions o = new OAuth2RefreshTokenOptions();
-        o.setAppId(ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_APP_ID)));
-        o.setAccessTokenEndpoint(
-            ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_ACCESS_TOKEN_ENDPOINT))
+    private interface SessionCallback {
+        void onSession(OAuth2Session session);
+    }
+
+    /**
+     * Like {@link #getSession} with create, but without blocking the caller, e.g. a callback on the main thread. The stored
+     * auth state is read on the store's thread and the session is handed to the callback on the main thread.
+     */
+    private void getSessionOnMainThread(final String key, final SessionCallback callback) {
+        if (this.authStateStore == null) {
+            getBridge().executeOnMainThread(() -> callback.onSession(this.sessions.getOrCreate(key)));
+            return;
+        }
+        this.authStateStoreExecutor.execute(() -> {
+            hydrateSessions();
+            final OAuth2Session stored = this.sessions.get(key) == null ? readStoredSession(key) : null;
+            getBridge().executeOnMainThread(() ->
+                callback.onSession(stored != null ? this.sessions.putIfAbsent(stored) : this.sessions.getOrCreate(key))
+            );
+        });
+    }
+
+    private OAuth2Session getRefreshSession(OAuth2RefreshTokenOptions options) {
+        hydrateSessions();
+        // refresh options have no authorizationBaseUrl, so the session is found by its refresh token
+        OAuth2Session session = this.sessions.findByRefreshToken(options.getAppId(), options.getRefreshToken());
+        if (session == null) {
+            session = getSession(OAuth2Session.key(options.getAppId(), null, null), true);
+        }
+        return session;
+    }
+
+    private synchronized void hydrateSessions() {
+        if (this.storedSessions != null) {
+            try {
+                for (OAuth2Session stored : this.storedSessions.get().values()) {
+                    this.sessions.putIfAbsent(stored);
+                }
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(getLogTag(), "Stored auth states could not be loaded!", e);
+            }
+            this.storedSessions = null;
+        }
+    }
+
+    private void onAuthStateUpdated(OAuth2Session session) {
+        persistAuthState(session);
+        scheduleRefreshAhead(session);
+    }
+
+    private void scheduleRefreshAhead() {
+        if (this.refreshScheduler != null) {
+            if (this.storedSessions != null) {
+                // do not block, the store's thread schedules it as soon as the stored auth states are loaded
+                return;
+            }
+            for (OAuth2Session session : this.sessions.getSessions()) {
+                scheduleRefreshAhead(session);
+            }
+        }
+    }
+
+    private void scheduleRefreshAhead(OAuth2Session session) {
+        if (this.refreshScheduler != null) {
+            AuthState state = session.getAuthState();
+            if (state != null && state.getRefreshToken() != null) {
+                this.refreshScheduler.schedule(session.getKey(), session.getAccessTokenIssuedAt(), state.getAccessTokenExpirationTime());
+            } else {
+                this.refreshScheduler.cancel(session.getKey());
+            }
+        }
+    }
+
+    private void refreshAhead(String sessionKey) {
+        final OAuth2Session session = this.sessions.get(sessionKey);
+        final AuthState state = session != null ? session.getAuthState() : null;
+        if (state == null || state.getRefreshToken() == null || state.getLastTokenResponse() == null) {
+            return;
+        }
+        refreshSession(
+            session,
+            state,
+            (response, ex) -> {
+                if (ex != null) {
+                    // no re-arm here, otherwise a offline device would retry immediately. The next resume re-arms.
+                    Log.w(getLogTag(), "Refresh ahead of token expiry failed", ex);
+                }
+            }
         );
-        o.setScope(ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_SCOPE)));
-        o.setRefreshToken(ConfigUtils.trimToNull(ConfigUtils.getOverwrittenAndroidParam(String.class, callData, PARAM_REFRESH_TOKEN)));
-        return o;
     }
 
-    @Override
-    protected void handleOnStop() {
-        super.handleOnStop();
-        disposeAuthService();
+    private void refreshSession(final OAuth2Session session, final AuthState state, TokenResponseCallback resultCallback) {
+        // build the request from the last token request as the auth state created by refreshToken has no authorization response
+        TokenRequest lastRequest = state.getLastTokenResponse().request;
+        TokenRequest refreshRequest = new TokenRequest.Builder(lastRequest.configuration, lastRequest.clientId)
+            .setGrantType(GrantTypeValues.REFRESH_TOKEN)
+            .setRefreshToken(state.getRefreshToken())
+            .build();
+        String refreshKey = TokenRequestCoalescer.refreshKey(
+            lastRequest.clientId,
+            lastRequest.configuration.tokenEndpoint.toString(),
+            state.getRefreshToken()
+        );
+        // a refreshToken call from JS with the same refresh token joins this request and vice versa
+        this.refreshCoalescer.execute(
+                refreshKey,
+                resultCallback,
+                callback -> {
+                    performTokenRequest(
+                        this.authServiceHolder.acquire(),
+                        refreshRequest,
+                        (response, ex) -> {
+                            this.authServiceHolder.release();
+                            // skip if discarded or replaced while refreshing
+                            if (session.updateIfCurrent(state, response, ex) && ex == null) {
+                                onAuthStateUpdated(session);
+                            }
+                            callback.onTokenRequestCompleted(response, ex);
+                        }
+                    );
+                }
+            );
+    }
+
+    /**
+     * Performs the token request through the circuit breaker of the token endpoint and retries transient failures.
+     * AppAuth exposes neither the status nor the Retry-After of the response, so only the backoff applies.
+     */
+    private void performTokenRequest(AuthorizationService service, TokenRequest request, TokenResponseCallback callback) {
+        performTokenRequest(service, request, callback, 0);
     }
 
-    private void disposeAuthService() {
-        if (authService != null) {
-            authService.dispose();
-            authService = null;
+    private void performTokenRequest(
+        final AuthorizationService service,
+        final TokenRequest request,
+        final TokenResponseCallback callback,
+        final int retry
+    ) {
+        final String endpoint = CircuitBreakerRegistry.endpointOf(request.configuration.tokenEndpoint.toString());
+        try {
+            this.circuitBreakers.acquire(endpoint, SystemClock.elapsedRealtime());
+        } catch (CircuitBreakerRegistry.OpenException e) {
+            callback.onTokenRequestCompleted(
+                null,
+                new AuthorizationException(
+                    AuthorizationException.TYPE_GENERAL_ERROR,
+                    AuthorizationException.GeneralErrors.NETWORK_ERROR.code,
+                    ERR_CIRCUIT_OPEN,
+                    e.getMessage(),
+                    null,
+                    e
+                )
+            );
+            return;
         }
+        service.performTokenRequest(
+            request,
+            (response, ex) -> {
+                if (ex == null || !RetryPolicy.isRetryable(ex)) {
+                    // an error response like invalid_grant is an answer of a working endpoint
+                    this.circuitBreakers.recordSuccess(endpoint);
+                    callback.onTokenRequestCompleted(response, ex);
+                    return;
+                }
+                this.circuitBreakers.recordFailure(endpoint, SystemClock.elapsedRealtime());
+                long delay = this.retryPolicy.delay(retry + 1, null, System.currentTimeMillis());
+                if (delay < 0) {
+                    callback.onTokenRequestCompleted(null, ex);
+                    return;
+                }
+                Log.w(getLogTag(), "Token request failed, retry in " + delay + " ms", ex);
+                this.retryHandler.postDelayed(
+                        () -> {
+                            try {
+                                performTokenRequest(service, request, callback, retry + 1);
+                            } catch (IllegalStateException e) {
+                                // the service was disposed in the meantime
+                                callback.onTokenRequestCompleted(null, ex);
+                            }
+                        },
+                        delay
+                    );
+            }
+        );
+    }
+
+    /**
+     * Lets a resource task refresh the session's access token once the resource server rejected it.
+     */
+    private ResourceUrlTask.AccessTokenRefresher accessTokenRefresher(final OAuth2Session session) {
+        return rejectedAccessToken -> {
+            final CountDownLatch refreshed = new CountDownLatch(1);
+            final AtomicReference<String> accessToken = new AtomicReference<>();
+            getBridge().executeOnMainThread(() -> {
+                AuthState state = session.getAuthState();
+                if (session.isDiscarded() || state == null || state.getRefreshToken() == null || state.getLastTokenResponse() == null) {
+                    refreshed.countDown();
+                    return;
+                }
+                if (!state.getNeedsTokenRefresh() && !rejectedAccessToken.equals(state.getAccessToken())) {
+                    // another call refreshed it already
+                    accessToken.set(state.getAccessToken());
+                    refreshed.countDown();
+                    return;
+                }
+                // joins a refresh already in flight, e.g. of a concurrent resource task
+                refreshSession(
+                    session,
+                    state,
+                    (response, ex) -> {
+                        if (ex == null && response != null) {
+                            accessToken.set(response.accessToken);
+                        }
+                        refreshed.countDown();
+                    }
+                );
+            });
+            if (!refreshed.await(REPLAY_REFRESH_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+            return accessToken.get();
+        };
     }
 
-    private void discardAuthState() {
-        if (this.authState != null) {
-            this.authState = null;
+    private JSObject buildAccessTokenResult(String accessToken, String idToken, Long expirationTime, boolean cacheHit) {
+        JSObject json = new JSObject();
+        json.put("access_token", accessToken);
+        if (idToken != null) {
+            json.put("id_token", idToken);
+        }
+        if (expirationTime != null) {
+            json.put("access_token_expiration_time", expirationTime);
+        }
+        json.put("cache_hit", cacheHit);
+        json.put("cache_hits", accessTokenCacheHits.get());
+        json.put("cache_misses", accessTokenCacheMisses.get());
+        return json;
+    }
+
+    private void persistAuthState(OAuth2Session session) {
+        if (this.authStateStore != null && !session.isDiscarded()) {
+            // serialize on the calling thread as the AuthState may change while the write is pending
+            final String serializedAuthState = session.serialize();
+            if (serializedAuthState != null) {
+                this.authStateStoreExecutor.execute(() -> this.authStateStore.write(session.getKey(), serializedAuthState));
+            }
+        }
+    }
+
+    private Map<String, OAuth2Session> readStoredSessions() {
+        Map<String, OAuth2Session> stored = new HashMap<>();
+        for (Map.Entry<String, String> entry : this.authStateStore.readAll().entrySet()) {
+            OAuth2Session session = deserializeSession(entry.getKey(), entry.getValue());
+            if (session != null) {
+                stored.put(entry.getKey(), session);
+            }
+        }
+        return stored;
+    }
+
+    private OAuth2Session readStoredSession(String key) {
+        return deserializeSession(key, this.authStateStore.read(key));
+    }
+
+    private OAuth2Session deserializeSession(String key, String serializedAuthState) {
+        if (serializedAuthState != null) {
+            try {
+                return OAuth2Session.deserialize(key, serializedAuthState);
+            } catch (JSONException e) {
+                Log.e(getLogTag(), "Stored auth state is no valid json and is discarded.", e);
+                this.authStateStore.remove(key);
+            }
+        }
+        return null;
+    }
+
+    private ConnectionBuilder createTokenConnectionBuilder() {
+        String builderClassname = ConfigUtils.trimToNull(getConfig().getString(CONFIG_TOKEN_CONNECTION_BUILDER_CLASS));
+        if (builderClassname != null) {
+            try {
+                Class<ConnectionBuilder> builderClass = (Class<ConnectionBuilder>) Class.forName(builderClassname);
+                try {
+                    return builderClass.getConstructor(Context.class).newInstance(getContext());
+                } catch (NoSuchMethodException e) {
+                    return builderClass.newInstance();
+                }
+            } catch (Exception e) {
+                Log.e(getLogTag(), "Token connection builder '" + builderClassname + "' could not be created!", e);
+            }
+        }
+        String serverOverride = ConfigUtils.trimToNull(getConfig().getString(CONFIG_TOKEN_SERVER_OVERRIDE));
+        if (serverOverride != null) {
+            Log.w(getLogTag(), "All token requests are sent to " + serverOverride + ". Only use tokenServerOverride in tests!");
+        }
+        return new TokenConnectionBuilder(
+            this.resourceHttpClient,
+            getConfig().getInt(CONFIG_TOKEN_CONNECT_TIMEOUT, TokenConnectionBuilder.DEFAULT_CONNECT_TIMEOUT),
+            getConfig().getInt(CONFIG_TOKEN_READ_TIMEOUT, TokenConnectionBuilder.DEFAULT_READ_TIMEOUT),
+            serverOverride
+        );
+    }
+
+    /**
+     * Instantiates the handlers in the background, so a broken handler is reported at startup and not at the first login.
+     */
+    private void preloadCustomHandlers(String[] classNames) {
+        if (classNames.length == 0) {
+            return;
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.execute(() -> {
+            for (Map.Entry<String, Throwable> failure : this.customHandlers.preload(classNames).entrySet()) {
+                Log.e(getLogTag(), "Custom handler '" + failure.getKey() + "' could not be created!", failure.getValue());
+            }
+        });
+        executor.shutdown();
+    }
+
+    private AuthStateStore createAuthStateStore() {
+        String storeClassname = ConfigUtils.trimToNull(getConfig().getString(CONFIG_AUTH_STATE_STORE_CLASS));
+        if (storeClassname != null) {
+            try {
+                Class<AuthStateStore> storeClass = (Class<AuthStateStore>) Class.forName(storeClassname);
+                try {
+                    return storeClass.getConstructor(Context.class).newInstance(getContext());
+                } catch (NoSuchMethodException e) {
+                    return storeClass.newInstance();
+                }
+            } catch (Exception e) {
+                Log.e(getLogTag(), "Auth state store '" + storeClassname + "' could not be created!", e);
+                return null;
+            }
+        }
+        if (getConfig().getBoolean(CONFIG_PERSIST_AUTH_STATE, false)) {
+            if (EncryptedAuthStateStore.isSupported()) {
+                return new EncryptedAuthStateStore(getContext(), getLogTag());
+            }
+            Log.w(getLogTag(), "Persisting the auth state requires Android 6.0 (API 23) or newer.");
         }
+        return null;
     }
 }
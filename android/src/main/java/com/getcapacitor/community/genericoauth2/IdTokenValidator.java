@@ -0,0 +1,169 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import net.openid.appauth.AuthorizationServiceConfiguration;
+import net.openid.appauth.AuthorizationServiceDiscovery;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Validates the signature and the claims of an ID token against the JSON Web Key Set of its issuer.
+ */
+public class IdTokenValidator {
+
+    static final long CLOCK_SKEW = 5 * 60 * 1000;
+
+    private final DiscoveryCache discoveryCache;
+    private final JwksCache jwksCache;
+
+    public IdTokenValidator(DiscoveryCache discoveryCache, JwksCache jwksCache) {
+        this.discoveryCache = discoveryCache;
+        this.jwksCache = jwksCache;
+    }
+
+    /**
+     * Must not be called on the main thread as discovery document and key set might be fetched.
+     * @throws GeneralSecurityException if the token is invalid
+     */
+    public void validate(String idToken, String issuer, String clientId, String nonce) throws IOException, GeneralSecurityException {
+        AuthorizationServiceConfiguration configuration = this.discoveryCache.get(issuer);
+        AuthorizationServiceDiscovery discovery = configuration.discoveryDoc;
+        if (discovery == null || discovery.getJwksUri() == null) {
+            throw new IOException("Discovery document of " + issuer + " has no jwks_uri");
+        }
+        validate(idToken, discovery.getIssuer(), discovery.getJwksUri().toString(), clientId, nonce, System.currentTimeMillis());
+    }
+
+    void validate(String idToken, String expectedIssuer, String jwksUri, String clientId, String nonce, long now)
+        throws IOException, GeneralSecurityException {
+        String[] parts = idToken.split("\\.");
+        if (parts.length != 3) {
+            throw new GeneralSecurityException("ID token is no signed JWT");
+        }
+        try {
+            JSONObject header = new JSONObject(decodePart(parts[0]));
+            String algorithm = signatureAlgorithm(header.getString("alg"));
+            PublicKey key = this.jwksCache.getKey(jwksUri, header.optString("kid", null), now);
+            if (key == null) {
+                throw new GeneralSecurityException("No key found for the ID token");
+            }
+            Signature signature = Signature.getInstance(algorithm);
+            signature.initVerify(key);
+            signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            byte[] signatureBytes = JwksCache.decodeBase64Url(parts[2]);
+            if (algorithm.endsWith("ECDSA")) {
+                signatureBytes = toDerSignature(signatureBytes);
+            }
+            if (!signature.verify(signatureBytes)) {
+                throw new SignatureException("ID token signature is invalid");
+            }
+            validateClaims(new JSONObject(decodePart(parts[1])), expectedIssuer, clientId, nonce, now);
+        } catch (JSONException | IllegalArgumentException e) {
+            throw new GeneralSecurityException("ID token is malformed", e);
+        }
+    }
+
+    private static void validateClaims(JSONObject claims, String expectedIssuer, String clientId, String nonce, long now)
+        throws JSONException, GeneralSecurityException {
+        if (!claims.getString("iss").equals(expectedIssuer)) {
+            throw new GeneralSecurityException("ID token issuer does not match");
+        }
+        if (!containsAudience(claims, clientId)) {
+            throw new GeneralSecurityException("ID token audience does not match");
+        }
+        if (claims.getLong("exp") * 1000 + CLOCK_SKEW < now) {
+            throw new GeneralSecurityException("ID token expired");
+        }
+        if (claims.has("iat") && claims.getLong("iat") * 1000 - CLOCK_SKEW > now) {
+            throw new GeneralSecurityException("ID token issued in the future");
+        }
+        if (nonce != null && !nonce.equals(claims.optString("nonce", null))) {
+            throw new GeneralSecurityException("ID token nonce does not match");
+        }
+    }
+
+    private static boolean containsAudience(JSONObject claims, String clientId) throws JSONException {
+        JSONArray audiences = claims.optJSONArray("aud");
+        if (audiences == null) {
+            return clientId.equals(claims.getString("aud"));
+        }
+        for (int i = 0; i < audiences.length(); i++) {
+            if (clientId.equals(audiences.getString(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String signatureAlgorithm(String alg) throws GeneralSecurityException {
+        switch (alg) {
+            case "RS256":
+                return "SHA256withRSA";
+            case "RS384":
+                return "SHA384withRSA";
+            case "RS512":
+                return "SHA512withRSA";
+            case "ES256":
+                return "SHA256withECDSA";
+            case "ES384":
+                return "SHA384withECDSA";
+            case "ES512":
+                return "SHA512withECDSA";
+            default:
+                // incl. none and the HMAC algorithms, which need the client secret
+                throw new GeneralSecurityException("Unsupported ID token algorithm " + alg);
+        }
+    }
+
+    private static String decodePart(String part) {
+        return new String(JwksCache.decodeBase64Url(part), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * JWS carries ECDSA signatures as r and s concatenated, java expects them DER encoded.
+     */
+    static byte[] toDerSignature(byte[] jwsSignature) throws SignatureException {
+        if (jwsSignature.length == 0 || jwsSignature.length % 2 != 0) {
+            throw new SignatureException("ID token signature is invalid");
+        }
+        int half = jwsSignature.length / 2;
+        byte[] r = toDerInteger(jwsSignature, 0, half);
+        byte[] s = toDerInteger(jwsSignature, half, half);
+        int contentLength = r.length + s.length;
+        // P-521 signatures need the long form of the sequence length
+        int headerLength = contentLength > 127 ? 3 : 2;
+        byte[] der = new byte[headerLength + contentLength];
+        der[0] = 0x30;
+        if (contentLength > 127) {
+            der[1] = (byte) 0x81;
+            der[2] = (byte) contentLength;
+        } else {
+            der[1] = (byte) contentLength;
+        }
+        System.arraycopy(r, 0, der, headerLength, r.length);
+        System.arraycopy(s, 0, der, headerLength + r.length, s.length);
+        return der;
+    }
+
+    private static byte[] toDerInteger(byte[] source, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end - 1 && source[start] == 0) {
+            start++;
+        }
+        // a leading 0 keeps the integer positive
+        int padding = (source[start] & 0x80) != 0 ? 1 : 0;
+        int valueLength = end - start;
+        byte[] integer = new byte[2 + padding + valueLength];
+        integer[0] = 0x02;
+        integer[1] = (byte) (padding + valueLength);
+        System.arraycopy(source, start, integer, 2 + padding, valueLength);
+        return integer;
+    }
+}
@@ -0,0 +1,288 @@
+package com.getcapacitor.community.genericoauth2;
+
+import com.getcapacitor.JSObject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.regex.Pattern;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Parses a JSON response straight from the stream, so the body is never held as String in addition to the parsed object.
+ * It reads the stream itself instead of using android.util.JsonReader, which is not available in unit tests.
+ */
+public abstract class JsonStreamParser {
+
+    private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+    public static JSObject parseObject(InputStream in, String contentType) throws IOException, JSONException {
+        try (Reader reader = new InputStreamReader(in, charsetOf(contentType))) {
+            Parser parser = new Parser(reader);
+            if (parser.peekNonWhitespace() != '{') {
+                throw new JSONException("Expected a JSON object");
+            }
+            JSObject object = new JSObject();
+            parser.readObject(object);
+            // reads up to the end, so the connection can be reused
+            if (parser.peekNonWhitespace() != -1) {
+                throw new JSONException("Unexpected content after the JSON object");
+            }
+            return object;
+        }
+    }
+
+    /**
+     * @return a JSONObject, JSONArray, String, Number, Boolean or JSONObject.NULL
+     */
+    public static Object parseValue(InputStream in, String contentType) throws IOException, JSONException {
+        try (Reader reader = new InputStreamReader(in, charsetOf(contentType))) {
+            Parser parser = new Parser(reader);
+            Object value = parser.readValue();
+            if (parser.peekNonWhitespace() != -1) {
+                throw new JSONException("Unexpected content after the JSON value");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * @return the charset of the Content-Type header or UTF-8, the default of JSON
+     */
+    public static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                String p = parameter.trim();
+                if (p.regionMatches(true, 0, "charset=", 0, "charset=".length())) {
+                    try {
+                        return Charset.forName(p.substring("charset=".length()).replace("\"", "").trim());
+                    } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    static Object parseNumber(String number) {
+        if (number.indexOf('.') == -1 && number.indexOf('e') == -1 && number.indexOf('E') == -1) {
+            try {
+                long value = Long.parseLong(number);
+                if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    return (int) value;
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                // too large for a long
+            }
+        }
+        return Double.valueOf(number);
+    }
+
+    /**
+     * Reads the values char by char from a buffer, syntax errors are reported as JSONException like the ones of JSONObject.
+     */
+    private static final class Parser {
+
+        private final Reader reader;
+        private final char[] buffer = new char[1024];
+        private int position;
+        private int limit;
+
+        Parser(Reader reader) {
+            this.reader = reader;
+        }
+
+        Object readValue() throws IOException, JSONException {
+            int c = peekNonWhitespace();
+            switch (c) {
+                case '{':
+                    JSONObject object = new JSONObject();
+                    readObject(object);
+                    return object;
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    readLiteral("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    readLiteral("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    readLiteral("null");
+                    return JSONObject.NULL;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return readNumber();
+                    }
+                    throw unexpected(c);
+            }
+        }
+
+        void readObject(JSONObject object) throws IOException, JSONException {
+            expect('{');
+            if (peekNonWhitespace() == '}') {
+                read();
+                return;
+            }
+            while (true) {
+                if (peekNonWhitespace() != '"') {
+                    throw unexpected(peek());
+                }
+                String name = readString();
+                if (peekNonWhitespace() != ':') {
+                    throw unexpected(peek());
+                }
+                read();
+                object.put(name, readValue());
+                int c = peekNonWhitespace();
+                read();
+                if (c == '}') {
+                    return;
+                } else if (c != ',') {
+                    throw unexpected(c);
+                }
+            }
+        }
+
+        private JSONArray readArray() throws IOException, JSONException {
+            expect('[');
+            JSONArray array = new JSONArray();
+            if (peekNonWhitespace() == ']') {
+                read();
+                return array;
+            }
+            while (true) {
+                array.put(readValue());
+                int c = peekNonWhitespace();
+                read();
+                if (c == ']') {
+                    return array;
+                } else if (c != ',') {
+                    throw unexpected(c);
+                }
+            }
+        }
+
+        private String readString() throws IOException, JSONException {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                int c = read();
+                if (c == '"') {
+                    return sb.toString();
+                } else if (c == '\\') {
+                    sb.append(readEscaped());
+                } else if (c == -1 || c < 0x20) {
+                    throw unexpected(c);
+                } else {
+                    sb.append((char) c);
+                }
+            }
+        }
+
+        private char readEscaped() throws IOException, JSONException {
+            int c = read();
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    return (char) c;
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'u':
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw new JSONException("Invalid unicode escape");
+                        }
+                        value = (value << 4) | digit;
+                    }
+                    return (char) value;
+                default:
+                    throw new JSONException("Invalid escape " + (c == -1 ? "at the end" : "\\" + (char) c));
+            }
+        }
+
+        private Object readNumber() throws IOException, JSONException {
+            StringBuilder sb = new StringBuilder();
+            int c = peek();
+            while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+                sb.append((char) read());
+                c = peek();
+            }
+            String number = sb.toString();
+            if (!NUMBER.matcher(number).matches()) {
+                throw new JSONException("Invalid number " + number);
+            }
+            return parseNumber(number);
+        }
+
+        private void readLiteral(String literal) throws IOException, JSONException {
+            for (int i = 0; i < literal.length(); i++) {
+                int c = read();
+                if (c != literal.charAt(i)) {
+                    throw unexpected(c);
+                }
+            }
+        }
+
+        private void expect(char expected) throws IOException, JSONException {
+            int c = read();
+            if (c != expected) {
+                throw unexpected(c);
+            }
+        }
+
+        int peekNonWhitespace() throws IOException {
+            int c = peek();
+            while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                position++;
+                c = peek();
+            }
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position];
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            if (c != -1) {
+                position++;
+            }
+            return c;
+        }
+
+        private static JSONException unexpected(int c) {
+            return new JSONException(c == -1 ? "Unexpected end of the JSON input" : "Unexpected character '" + (char) c + "'");
+        }
+    }
+}
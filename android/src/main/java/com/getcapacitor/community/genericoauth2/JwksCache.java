@@ -0,0 +1,253 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.net.Uri;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.HashMap;
+import java.util.Map;
+import net.openid.appauth.connectivity.ConnectionBuilder;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Keeps the parsed public keys of JSON Web Key Sets, so validating an ID token needs no base64 or key factory work.
+ * A key set is refetched when it expired or when a token names an unknown kid, e.g. after a key rotation.
+ * Only one fetch per key set is in flight, concurrent lookups wait for it instead of fetching again.
+ * The key sets are fetched through the connection builder of the token requests, like the discovery document.
+ */
+public class JwksCache {
+
+    static final long MAX_AGE = 60 * 60 * 1000;
+    // an unknown kid does not trigger more than one fetch in that interval
+    static final long MIN_REFETCH_INTERVAL = 60 * 1000;
+
+    interface Fetcher {
+        String fetch(String jwksUri) throws IOException;
+    }
+
+    private final Fetcher fetcher;
+    private final Map<String, KeySet> keySets = new HashMap<>();
+    private final Map<String, Object> fetchLocks = new HashMap<>();
+
+    public JwksCache(final ConnectionBuilder connectionBuilder) {
+        this((String jwksUri) -> download(connectionBuilder, jwksUri));
+    }
+
+    JwksCache(Fetcher fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * @return the key or null if the key set does not contain it even after a refetch
+     */
+    public PublicKey getKey(String jwksUri, String kid, long now) throws IOException {
+        PublicKey key = findValidKey(jwksUri, kid, now);
+        if (key != null) {
+            return key;
+        }
+        synchronized (getFetchLock(jwksUri)) {
+            // another thread might have fetched the key set while this one was waiting
+            KeySet keySet = getKeySet(jwksUri);
+            if (keySet != null && now - keySet.fetchedAt < MIN_REFETCH_INTERVAL) {
+                return keySet.find(kid);
+            }
+            keySet = parse(fetcher.fetch(jwksUri), now);
+            synchronized (this) {
+                keySets.put(jwksUri, keySet);
+            }
+            return keySet.find(kid);
+        }
+    }
+
+    private PublicKey findValidKey(String jwksUri, String kid, long now) {
+        KeySet keySet = getKeySet(jwksUri);
+        if (keySet == null || now - keySet.fetchedAt >= MAX_AGE) {
+            return null;
+        }
+        return keySet.find(kid);
+    }
+
+    private synchronized KeySet getKeySet(String jwksUri) {
+        return keySets.get(jwksUri);
+    }
+
+    private synchronized Object getFetchLock(String jwksUri) {
+        Object lock = fetchLocks.get(jwksUri);
+        if (lock == null) {
+            lock = new Object();
+            fetchLocks.put(jwksUri, lock);
+        }
+        return lock;
+    }
+
+    static KeySet parse(String jwks, long now) throws IOException {
+        try {
+            JSONArray keys = new JSONObject(jwks).getJSONArray("keys");
+            Map<String, PublicKey> parsed = new HashMap<>();
+            PublicKey single = null;
+            for (int i = 0; i < keys.length(); i++) {
+                JSONObject jwk = keys.getJSONObject(i);
+                String use = jwk.optString("use", "sig");
+                if (!"sig".equals(use)) {
+                    continue;
+                }
+                PublicKey key;
+                try {
+                    key = toPublicKey(jwk);
+                } catch (GeneralSecurityException | IllegalArgumentException e) {
+                    // skip keys of unsupported types or curves, the token will not reference them
+                    continue;
+                }
+                if (key != null) {
+                    parsed.put(jwk.optString("kid", ""), key);
+                    single = key;
+                }
+            }
+            return new KeySet(parsed, parsed.size() == 1 ? single : null, now);
+        } catch (JSONException e) {
+            throw new IOException("Invalid JSON Web Key Set", e);
+        }
+    }
+
+    private static PublicKey toPublicKey(JSONObject jwk) throws JSONException, GeneralSecurityException {
+        String kty = jwk.getString("kty");
+        if ("RSA".equals(kty)) {
+            BigInteger modulus = new BigInteger(1, decodeBase64Url(jwk.getString("n")));
+            BigInteger exponent = new BigInteger(1, decodeBase64Url(jwk.getString("e")));
+            return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
+        }
+        if ("EC".equals(kty)) {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(curveName(jwk.getString("crv"))));
+            ECPoint point = new ECPoint(
+                new BigInteger(1, decodeBase64Url(jwk.getString("x"))),
+                new BigInteger(1, decodeBase64Url(jwk.getString("y")))
+            );
+            return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+        }
+        return null;
+    }
+
+    private static String curveName(String crv) throws GeneralSecurityException {
+        switch (crv) {
+            case "P-256":
+                return "secp256r1";
+            case "P-384":
+                return "secp384r1";
+            case "P-521":
+                return "secp521r1";
+            default:
+                throw new GeneralSecurityException("Unsupported curve " + crv);
+        }
+    }
+
+    /**
+     * Base64url with or without padding, android.util.Base64 is not available in unit tests.
+     * @throws IllegalArgumentException if the value is no base64url
+     */
+    static byte[] decodeBase64Url(String value) {
+        int length = value.length();
+        while (length > 0 && value.charAt(length - 1) == '=') {
+            length--;
+        }
+        if (length % 4 == 1) {
+            throw new IllegalArgumentException("Invalid base64url length");
+        }
+        byte[] decoded = new byte[length * 3 / 4];
+        int bits = 0;
+        int bitCount = 0;
+        int j = 0;
+        for (int i = 0; i < length; i++) {
+            bits = (bits << 6) | base64UrlValue(value.charAt(i));
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                decoded[j++] = (byte) (bits >> bitCount);
+                bits &= (1 << bitCount) - 1;
+            }
+        }
+        return decoded;
+    }
+
+    private static int base64UrlValue(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        } else if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 26;
+        } else if (c >= '0' && c <= '9') {
+            return c - '0' + 52;
+        } else if (c == '-') {
+            return 62;
+        } else if (c == '_') {
+            return 63;
+        }
+        throw new IllegalArgumentException("Invalid base64url character '" + c + "'");
+    }
+
+    /**
+     * The connection builder enforces https and sets the configured timeouts and TLS.
+     */
+    private static String download(ConnectionBuilder connectionBuilder, String jwksUri) throws IOException {
+        HttpURLConnection conn = connectionBuilder.openConnection(Uri.parse(jwksUri));
+        boolean bodyConsumed = false;
+        try {
+            conn.setRequestProperty("Accept", "application/json");
+            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("JSON Web Key Set " + jwksUri + " returned HTTP " + conn.getResponseCode());
+            }
+            String jwks = readInputStream(conn.getInputStream());
+            bodyConsumed = true;
+            return jwks;
+        } finally {
+            // a connection whose body was read completely stays in the pool
+            if (!bodyConsumed) {
+                conn.disconnect();
+            }
+        }
+    }
+
+    private static String readInputStream(InputStream in) throws IOException {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[1024];
+            StringBuilder sb = new StringBuilder();
+            int readCount;
+            while ((readCount = br.read(buffer)) != -1) {
+                sb.append(buffer, 0, readCount);
+            }
+            return sb.toString();
+        }
+    }
+
+    static class KeySet {
+
+        private final Map<String, PublicKey> keysById;
+        // used for tokens without kid, only unambiguous if the set has a single key
+        private final PublicKey singleKey;
+        final long fetchedAt;
+
+        KeySet(Map<String, PublicKey> keysById, PublicKey singleKey, long fetchedAt) {
+            this.keysById = keysById;
+            this.singleKey = singleKey;
+            this.fetchedAt = fetchedAt;
+        }
+
+        PublicKey find(String kid) {
+            return kid != null ? keysById.get(kid) : singleKey;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.os.Build;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * AES/GCM encryption with the plugin's key in the AndroidKeyStore, the IV is prepended to the encrypted data.
+ * Key and cipher are looked up once and reused for every operation.
+ */
+public class KeystoreCipher {
+
+    private static final String KEY_STORE = "AndroidKeyStore";
+    private static final String KEY_ALIAS = "GenericOAuth2AuthStateKey";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_TAG_LENGTH = 128;
+    private static final int GCM_IV_LENGTH = 12;
+
+    private SecretKey secretKey;
+    private Cipher cipher;
+
+    public static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+    }
+
+    public synchronized byte[] encrypt(byte[] plain) throws GeneralSecurityException {
+        Cipher c = getCipher();
+        c.init(Cipher.ENCRYPT_MODE, getSecretKey());
+        byte[] iv = c.getIV();
+        byte[] encrypted = c.doFinal(plain);
+        byte[] data = new byte[iv.length + encrypted.length];
+        System.arraycopy(iv, 0, data, 0, iv.length);
+        System.arraycopy(encrypted, 0, data, iv.length, encrypted.length);
+        return data;
+    }
+
+    public synchronized byte[] decrypt(byte[] data) throws GeneralSecurityException {
+        if (data.length < GCM_IV_LENGTH) {
+            throw new GeneralSecurityException("Encrypted data too short");
+        }
+        Cipher c = getCipher();
+        c.init(Cipher.DECRYPT_MODE, getSecretKey(), new GCMParameterSpec(GCM_TAG_LENGTH, data, 0, GCM_IV_LENGTH));
+        return c.doFinal(data, GCM_IV_LENGTH, data.length - GCM_IV_LENGTH);
+    }
+
+    private Cipher getCipher() throws GeneralSecurityException {
+        if (cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+        }
+        return cipher;
+    }
+
+    private SecretKey getSecretKey() throws GeneralSecurityException {
+        if (secretKey == null) {
+            try {
+                KeyStore keyStore = KeyStore.getInstance(KEY_STORE);
+                keyStore.load(null);
+                KeyStore.Entry entry = keyStore.getEntry(KEY_ALIAS, null);
+                if (entry instanceof KeyStore.SecretKeyEntry) {
+                    secretKey = ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+                } else {
+                    KeyGenerator keyGenerator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEY_STORE);
+                    keyGenerator.init(
+                        new KeyGenParameterSpec.Builder(KEY_ALIAS, KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                            .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                            .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                            .setKeySize(256)
+                            .build()
+                    );
+                    secretKey = keyGenerator.generateKey();
+                }
+            } catch (IOException e) {
+                throw new GeneralSecurityException(e);
+            }
+        }
+        return secretKey;
+    }
+}
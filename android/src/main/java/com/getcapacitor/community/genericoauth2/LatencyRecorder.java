@@ -0,0 +1,198 @@
+package com.getcapacitor.community.genericoauth2;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records how long the phases of authenticate, refreshToken and logout take, per call and as histograms since app start.
+ * Times are milliseconds of a monotonic clock, i.e. SystemClock.elapsedRealtime(), which keeps counting while the device
+ * sleeps during the login. A disabled recorder hands out one shared trace doing nothing, so it allocates nothing.
+ */
+public class LatencyRecorder {
+
+    // upper bounds in milliseconds, the last bucket takes the rest
+    static final long[] BUCKET_BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000 };
+
+    public enum Phase {
+        // until the browser is started
+        AUTHENTICATE_LAUNCH("authenticate", "launch"),
+        // until the redirect or the custom handler's tokens arrive at the plugin
+        AUTHENTICATE_INTERACTION("authenticate", "interaction"),
+        AUTHENTICATE_TOKEN_EXCHANGE("authenticate", "token_exchange"),
+        AUTHENTICATE_FRESH_TOKENS("authenticate", "fresh_tokens"),
+        AUTHENTICATE_RESOURCE("authenticate", "resource"),
+        AUTHENTICATE_TOTAL("authenticate", "total"),
+        REFRESH_TOKEN_REQUEST("refreshToken", "token_request"),
+        REFRESH_TOKEN_TOTAL("refreshToken", "total"),
+        LOGOUT_LAUNCH("logout", "launch"),
+        LOGOUT_INTERACTION("logout", "interaction"),
+        LOGOUT_TOTAL("logout", "total");
+
+        final String operation;
+        final String key;
+
+        Phase(String operation, String key) {
+            this.operation = operation;
+            this.key = key;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    // null if disabled
+    private final Histogram[] histograms;
+
+    public LatencyRecorder(boolean enabled) {
+        if (enabled) {
+            this.histograms = new Histogram[PHASES.length];
+            for (int i = 0; i < PHASES.length; i++) {
+                this.histograms[i] = new Histogram();
+            }
+        } else {
+            this.histograms = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return histograms != null;
+    }
+
+    public Trace start(long now) {
+        return histograms != null ? new Trace(this, now) : Trace.NONE;
+    }
+
+    /**
+     * @return the histograms as {bounds, phases: [{operation, phase, count, sum, max, counts}]}, the counts per bucket
+     * of bounds plus the one above
+     */
+    public JSObject toJSObject() {
+        JSObject json = new JSObject();
+        json.put("enabled", isEnabled());
+        JSArray bounds = new JSArray();
+        for (long bound : BUCKET_BOUNDS) {
+            bounds.put(bound);
+        }
+        json.put("bounds", bounds);
+        JSArray phases = new JSArray();
+        if (histograms != null) {
+            for (Phase phase : PHASES) {
+                phases.put(histograms[phase.ordinal()].toJSObject(phase));
+            }
+        }
+        json.put("phases", phases);
+        return json;
+    }
+
+    long getCount(Phase phase) {
+        return histograms != null ? histograms[phase.ordinal()].count.get() : 0;
+    }
+
+    /**
+     * The durations of one call. It is handed from callback to callback, so it is only used by one thread at a time.
+     */
+    public static class Trace {
+
+        static final Trace NONE = new Trace(null, 0);
+
+        private final LatencyRecorder recorder;
+        private final long start;
+        private long last;
+        private final long[] durations;
+
+        private Trace(LatencyRecorder recorder, long start) {
+            this.recorder = recorder;
+            this.start = start;
+            this.last = start;
+            if (recorder != null) {
+                this.durations = new long[PHASES.length];
+                Arrays.fill(this.durations, -1);
+            } else {
+                this.durations = null;
+            }
+        }
+
+        public boolean isRecording() {
+            return recorder != null;
+        }
+
+        /**
+         * Records the time since the previous mark, or since the start for the first one.
+         */
+        public void mark(Phase phase, long now) {
+            if (recorder != null) {
+                record(phase, now - last);
+                last = now;
+            }
+        }
+
+        /**
+         * Records the time since the start.
+         */
+        public void finish(Phase total, long now) {
+            if (recorder != null) {
+                record(total, now - start);
+                last = now;
+            }
+        }
+
+        private void record(Phase phase, long duration) {
+            durations[phase.ordinal()] = Math.max(0, duration);
+            recorder.histograms[phase.ordinal()].record(Math.max(0, duration));
+        }
+
+        /**
+         * Puts the recorded durations into the result as "latency", e.g. {launch: 80, interaction: 5400, total: 6100}.
+         * A null result is returned as is.
+         */
+        public JSObject attachTo(JSObject result) {
+            if (recorder != null && result != null) {
+                JSObject latency = new JSObject();
+                for (Phase phase : PHASES) {
+                    if (durations[phase.ordinal()] >= 0) {
+                        latency.put(phase.key, durations[phase.ordinal()]);
+                    }
+                }
+                result.put("latency", latency);
+            }
+            return result;
+        }
+    }
+
+    private static class Histogram {
+
+        final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+
+        void record(long duration) {
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && duration > BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sum.addAndGet(duration);
+            long current;
+            while ((current = max.get()) < duration && !max.compareAndSet(current, duration)) {}
+        }
+
+        JSObject toJSObject(Phase phase) {
+            JSObject json = new JSObject();
+            json.put("operation", phase.operation);
+            json.put("phase", phase.key);
+            json.put("count", count.get());
+            json.put("sum", sum.get());
+            json.put("max", max.get());
+            JSArray bucketCounts = new JSArray();
+            for (int i = 0; i < counts.length(); i++) {
+                bucketCounts.put(counts.get(i));
+            }
+            json.put("counts", bucketCounts);
+            return json;
+        }
+    }
+}
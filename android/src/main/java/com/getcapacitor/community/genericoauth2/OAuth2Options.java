@@ -11,16 +11,24 @@ public class OAuth2Options {
     private String responseType;
     private String redirectUrl;
 
+    // endpoints not given are taken from the discovery document of the issuer
+    private String issuer;
+
     private String scope;
     private String state;
 
     private String accessTokenEndpoint;
     private String resourceUrl;
+    // named resources loaded in parallel to the resourceUrl
+    private Map<String, String> resourceUrls;
+    private Map<String, String> resourceTimeouts;
     private Map<String, String> additionalResourceHeaders;
 
     private boolean pkceEnabled;
     private boolean logsEnabled;
     private String pkceCodeVerifier;
+    // S256 challenge of the verifier, null to let AppAuth compute it
+    private String pkceCodeChallenge;
     private Map<String, String> additionalParameters;
 
     private String customHandlerClass;
@@ -83,6 +91,14 @@ public class OAuth2Options {
         this.responseType = responseType;
     }
 
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public void setIssuer(String issuer) {
+        this.issuer = issuer;
+    }
+
     public String getScope() {
         return scope;
     }
@@ -131,6 +147,14 @@ public class OAuth2Options {
         this.pkceCodeVerifier = pkceCodeVerifier;
     }
 
+    public String getPkceCodeChallenge() {
+        return pkceCodeChallenge;
+    }
+
+    public void setPkceCodeChallenge(String pkceCodeChallenge) {
+        this.pkceCodeChallenge = pkceCodeChallenge;
+    }
+
     public Map<String, String> getAdditionalParameters() {
         return additionalParameters;
     }
@@ -196,6 +220,36 @@ public class OAuth2Options {
         this.handleResultOnActivityResult = handleResultOnActivityResult;
     }
 
+    public Map<String, String> getResourceUrls() {
+        return resourceUrls;
+    }
+
+    public void setResourceUrls(Map<String, String> resourceUrls) {
+        this.resourceUrls = resourceUrls;
+    }
+
+    public Map<String, String> getResourceTimeouts() {
+        return resourceTimeouts;
+    }
+
+    public void setResourceTimeouts(Map<String, String> resourceTimeouts) {
+        this.resourceTimeouts = resourceTimeouts;
+    }
+
+    /**
+     * @return the timeout in milliseconds of the named resource or 0 for the configured one
+     */
+    public int getResourceTimeout(String name) {
+        if (resourceTimeouts == null || resourceTimeouts.get(name) == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, (int) Double.parseDouble(resourceTimeouts.get(name)));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     public Map<String, String> getAdditionalResourceHeaders() {
         return additionalResourceHeaders;
     }
@@ -4,6 +4,7 @@ public class OAuth2RefreshTokenOptions {
 
     private String appId;
     private String accessTokenEndpoint;
+    private String issuer;
     private String refreshToken;
     private String scope;
 
@@ -23,6 +24,14 @@ public class OAuth2RefreshTokenOptions {
         this.accessTokenEndpoint = accessTokenEndpoint;
     }
 
+    public String getIssuer() {
+        return issuer;
+    }
+
+    public void setIssuer(String issuer) {
+        this.issuer = issuer;
+    }
+
     public String getRefreshToken() {
         return refreshToken;
     }
@@ -0,0 +1,199 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.concurrent.locks.ReentrantLock;
+import net.openid.appauth.AuthState;
+import net.openid.appauth.AuthorizationException;
+import net.openid.appauth.AuthorizationResponse;
+import net.openid.appauth.AuthorizationServiceConfiguration;
+import net.openid.appauth.TokenResponse;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The auth state of one provider account. Every session has its own lock,
+ * so operations on different sessions do not block each other.
+ * It also remembers when its access token was issued, which the AuthState does not, and stores it with the AuthState.
+ */
+public class OAuth2Session {
+
+    private static final char KEY_SEPARATOR = '\n';
+    // not used by AppAuth, which ignores unknown properties when deserializing
+    private static final String KEY_ACCESS_TOKEN_ISSUED_AT = "genericOAuth2AccessTokenIssuedAt";
+
+    private final String key;
+    private final ReentrantLock lock = new ReentrantLock();
+    private AuthState authState;
+    // wall clock time in millis, 0 if unknown, e.g. stored by an older version
+    private long accessTokenIssuedAt;
+    private volatile boolean discarded;
+
+    OAuth2Session(String key, AuthState authState) {
+        this.key = key;
+        this.authState = authState;
+    }
+
+    /**
+     * Restores a session from {@link #serialize()}.
+     */
+    static OAuth2Session deserialize(String key, String serialized) throws JSONException {
+        JSONObject json = new JSONObject(serialized);
+        OAuth2Session session = new OAuth2Session(key, AuthState.jsonDeserialize(json));
+        session.accessTokenIssuedAt = json.optLong(KEY_ACCESS_TOKEN_ISSUED_AT, 0);
+        return session;
+    }
+
+    public static String key(String appId, String authorizationBaseUrl, String accountHint) {
+        return nullToEmpty(appId) + KEY_SEPARATOR + nullToEmpty(authorizationBaseUrl) + KEY_SEPARATOR + nullToEmpty(accountHint);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getAppId() {
+        return key.substring(0, key.indexOf(KEY_SEPARATOR));
+    }
+
+    /**
+     * @param appId null for any app
+     * @param accountHint null for any account, incl. the sessions of refreshToken which have none
+     */
+    public static boolean belongsTo(String key, String appId, String accountHint) {
+        int first = key.indexOf(KEY_SEPARATOR);
+        int last = key.lastIndexOf(KEY_SEPARATOR);
+        if (first < 0 || first == last) {
+            return false;
+        }
+        if (appId != null && !appId.equals(key.substring(0, first))) {
+            return false;
+        }
+        return accountHint == null || accountHint.equals(key.substring(last + 1));
+    }
+
+    public AuthState getAuthState() {
+        lock.lock();
+        try {
+            return authState;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return when the current access token was received, in millis of the wall clock, or 0 if unknown
+     */
+    public long getAccessTokenIssuedAt() {
+        lock.lock();
+        try {
+            return accessTokenIssuedAt;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public AuthState getOrCreateAuthState(AuthorizationServiceConfiguration config) {
+        lock.lock();
+        try {
+            if (authState == null) {
+                authState = new AuthState(config);
+            }
+            return authState;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the auth state by one not created by AppAuth, e.g. of a custom handler's tokens.
+     */
+    public void replaceAuthState(AuthState authState) {
+        lock.lock();
+        try {
+            this.authState = authState;
+            this.accessTokenIssuedAt = authState != null && authState.getAccessToken() != null ? System.currentTimeMillis() : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void update(AuthorizationResponse response, AuthorizationException ex) {
+        lock.lock();
+        try {
+            authState.update(response, ex);
+            // the implicit flow returns the access token with the authorization response
+            if (response != null && response.accessToken != null) {
+                accessTokenIssuedAt = System.currentTimeMillis();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void update(TokenResponse response, AuthorizationException ex) {
+        lock.lock();
+        try {
+            authState.update(response, ex);
+            if (response != null && response.accessToken != null) {
+                accessTokenIssuedAt = System.currentTimeMillis();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates the auth state only if it is still the expected one and the session was not discarded, e.g. by a logout or a
+     * login while the refresh was in flight. Check and update are atomic.
+     * @return true if updated
+     */
+    public boolean updateIfCurrent(AuthState expected, TokenResponse response, AuthorizationException ex) {
+        lock.lock();
+        try {
+            if (discarded || authState != expected) {
+                return false;
+            }
+            update(response, ex);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String serialize() {
+        lock.lock();
+        try {
+            if (authState == null) {
+                return null;
+            }
+            JSONObject json = authState.jsonSerialize();
+            if (accessTokenIssuedAt > 0) {
+                try {
+                    json.put(KEY_ACCESS_TOKEN_ISSUED_AT, accessTokenIssuedAt);
+                } catch (JSONException e) {
+                    // only thrown for a null key
+                }
+            }
+            return json.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isDiscarded() {
+        return discarded;
+    }
+
+    void discard() {
+        lock.lock();
+        try {
+            // after a running update, so no update follows the discard
+            discarded = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
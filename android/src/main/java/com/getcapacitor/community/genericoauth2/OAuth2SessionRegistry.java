@@ -0,0 +1,107 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.openid.appauth.AuthState;
+
+/**
+ * Sessions keyed by appId, authorizationBaseUrl and account hint.
+ * The registry keeps at most maxSize sessions in memory and evicts the least recently used one.
+ * Its lock only guards the map, work on a session uses the session's own lock.
+ */
+public class OAuth2SessionRegistry {
+
+    public interface EvictionListener {
+        void onSessionEvicted(OAuth2Session session);
+    }
+
+    private final LinkedHashMap<String, OAuth2Session> sessions;
+    private final EvictionListener evictionListener;
+    private final List<OAuth2Session> evicted = new ArrayList<>();
+
+    public OAuth2SessionRegistry(final int maxSize, EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+        this.sessions = new LinkedHashMap<String, OAuth2Session>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OAuth2Session> eldest) {
+                if (size() > maxSize) {
+                    evicted.add(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized OAuth2Session get(String key) {
+        return sessions.get(key);
+    }
+
+    public OAuth2Session getOrCreate(String key) {
+        return putIfAbsent(key, null);
+    }
+
+    /**
+     * Adds a session read from the store, unless its key has a session already.
+     * @return the session of the key
+     */
+    public OAuth2Session putIfAbsent(OAuth2Session stored) {
+        return putIfAbsent(stored.getKey(), stored);
+    }
+
+    private OAuth2Session putIfAbsent(String key, OAuth2Session stored) {
+        OAuth2Session session;
+        synchronized (this) {
+            session = sessions.get(key);
+            if (session == null) {
+                session = stored != null ? stored : new OAuth2Session(key, null);
+                sessions.put(key, session);
+            }
+        }
+        notifyEvicted();
+        return session;
+    }
+
+    public synchronized OAuth2Session remove(String key) {
+        return sessions.remove(key);
+    }
+
+    public synchronized List<OAuth2Session> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    public synchronized OAuth2Session findByRefreshToken(String appId, String refreshToken) {
+        for (OAuth2Session session : sessions.values()) {
+            if (session.getAppId().equals(appId)) {
+                AuthState authState = session.getAuthState();
+                if (authState != null && refreshToken.equals(authState.getRefreshToken())) {
+                    return session;
+                }
+            }
+        }
+        return null;
+    }
+
+    public synchronized int size() {
+        return sessions.size();
+    }
+
+    private void notifyEvicted() {
+        List<OAuth2Session> toNotify;
+        synchronized (this) {
+            if (evicted.isEmpty()) {
+                return;
+            }
+            toNotify = new ArrayList<>(evicted);
+            evicted.clear();
+        }
+        // outside of the registry lock so the listener may use the registry
+        if (evictionListener != null) {
+            for (OAuth2Session session : toNotify) {
+                evictionListener.onSessionEvicted(session);
+            }
+        }
+    }
+}
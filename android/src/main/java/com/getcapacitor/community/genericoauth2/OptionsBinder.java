@@ -0,0 +1,138 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Fills an options object from the call data. The keys are split once when the binder is built, so binding is a few
+ * hash lookups per option: the value in "android" overwrites the base one like {@link ConfigUtils#getOverwrittenAndroidParam}.
+ * A key starting with "android." is only read from there.
+ */
+public class OptionsBinder<T> {
+
+    private static final String ANDROID = "android";
+    private static final String ANDROID_PREFIX = ANDROID + ".";
+
+    interface Setter<T, V> {
+        void set(T target, V value);
+    }
+
+    private enum Type {
+        STRING,
+        BOOLEAN,
+        MAP
+    }
+
+    private static class Binding<T> {
+
+        final String key;
+        final boolean androidOnly;
+        final Type type;
+        final Setter<T, Object> setter;
+
+        Binding(String key, Type type, Setter<T, Object> setter) {
+            this.androidOnly = key.startsWith(ANDROID_PREFIX);
+            this.key = androidOnly ? key.substring(ANDROID_PREFIX.length()) : key;
+            this.type = type;
+            this.setter = setter;
+        }
+    }
+
+    private final List<Binding<T>> bindings = new ArrayList<>();
+
+    public OptionsBinder<T> string(String key, Setter<T, String> setter) {
+        return add(key, Type.STRING, setter);
+    }
+
+    /**
+     * The setter gets null if the option is missing.
+     */
+    public OptionsBinder<T> bool(String key, Setter<T, Boolean> setter) {
+        return add(key, Type.BOOLEAN, setter);
+    }
+
+    /**
+     * The entries of "android" are merged into the base ones. The setter gets an empty map if the option is missing.
+     */
+    public OptionsBinder<T> map(String key, Setter<T, Map<String, String>> setter) {
+        return add(key, Type.MAP, setter);
+    }
+
+    @SuppressWarnings("unchecked")
+    private OptionsBinder<T> add(String key, Type type, Setter<T, ?> setter) {
+        bindings.add(new Binding<>(key, type, (Setter<T, Object>) setter));
+        return this;
+    }
+
+    /**
+     * Calls every setter once, also for missing options.
+     */
+    public T bind(JSONObject data, T target) {
+        JSONObject android = data.optJSONObject(ANDROID);
+        for (Binding<T> binding : bindings) {
+            Object value;
+            if (binding.type == Type.MAP) {
+                Map<String, String> map = new HashMap<>();
+                if (!binding.androidOnly) {
+                    putEntries(data, binding.key, map);
+                }
+                if (android != null) {
+                    putEntries(android, binding.key, map);
+                }
+                value = map;
+            } else {
+                value = android != null ? read(android, binding.key, binding.type) : null;
+                if (value == null && !binding.androidOnly) {
+                    value = read(data, binding.key, binding.type);
+                }
+            }
+            binding.setter.set(target, value);
+        }
+        return target;
+    }
+
+    /**
+     * Converts like {@link ConfigUtils#getParam}, a value which cannot be converted counts as missing.
+     */
+    private static Object read(JSONObject o, String key, Type type) {
+        if (!o.has(key)) {
+            return null;
+        }
+        try {
+            switch (type) {
+                case STRING:
+                    return o.getString(key);
+                case BOOLEAN:
+                    return o.optBoolean(key);
+                default:
+                    return null;
+            }
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link ConfigUtils#getParamMap}, blank keys and values which cannot be read as string are skipped.
+     */
+    private static void putEntries(JSONObject o, String key, Map<String, String> map) {
+        JSONObject object = o.optJSONObject(key);
+        if (object == null) {
+            return;
+        }
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String mapKey = keys.next();
+            if (mapKey != null && mapKey.trim().length() > 0) {
+                try {
+                    map.put(mapKey, object.getString(mapKey));
+                } catch (JSONException ignore) {}
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates PKCE code verifiers with their S256 challenge and states from one shared SecureRandom. A few of them are
+ * generated in advance in the background, so authenticate neither waits for entropy nor hashes on the main thread.
+ * Taking one never blocks, if the pool is empty it is generated on the calling thread.
+ */
+public class PkceGenerator {
+
+    static final int POOL_SIZE = 4;
+    // 48 bytes are 64 characters, the length of the verifier used so far
+    static final int CODE_VERIFIER_BYTES = 48;
+    // 15 bytes are 20 characters, the length of the state used so far
+    static final int STATE_BYTES = 15;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final char[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentLinkedQueue<Pkce> pool = new ConcurrentLinkedQueue<>();
+    // the size of the queue is not constant time
+    private final AtomicInteger poolSize = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+
+    public PkceGenerator() {
+        this.ownExecutor = createExecutor();
+        this.executor = this.ownExecutor;
+    }
+
+    PkceGenerator(Executor executor) {
+        this.ownExecutor = null;
+        this.executor = executor;
+    }
+
+    /**
+     * Thread-safe and lock-free. Triggers the refill of the pool.
+     */
+    public Pkce take() {
+        Pkce pkce = pool.poll();
+        if (pkce != null) {
+            poolSize.decrementAndGet();
+        } else {
+            pkce = generate();
+        }
+        refill();
+        return pkce;
+    }
+
+    /**
+     * Fills the pool in the background unless it is full or being filled already.
+     */
+    public void refill() {
+        if (poolSize.get() >= POOL_SIZE || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    while (poolSize.get() < POOL_SIZE) {
+                        pool.offer(generate());
+                        poolSize.incrementAndGet();
+                    }
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shut down, take still generates on the calling thread
+            refilling.set(false);
+        }
+    }
+
+    public void shutdown() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+    }
+
+    int getPoolSize() {
+        return poolSize.get();
+    }
+
+    Pkce generate() {
+        String codeVerifier = encodeBase64Url(randomBytes(CODE_VERIFIER_BYTES));
+        return new Pkce(codeVerifier, codeChallenge(codeVerifier), encodeBase64Url(randomBytes(STATE_BYTES)));
+    }
+
+    private byte[] randomBytes(int count) {
+        byte[] bytes = new byte[count];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the S256 code challenge, see RFC 7636 section 4.2
+     */
+    static String codeChallenge(String codeVerifier) {
+        try {
+            return encodeBase64Url(MessageDigest.getInstance("SHA-256").digest(codeVerifier.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Base64url without padding, android.util.Base64 is not available in unit tests.
+     */
+    static String encodeBase64Url(byte[] data) {
+        StringBuilder sb = new StringBuilder((data.length * 4 + 2) / 3);
+        int i = 0;
+        for (; i + 2 < data.length; i += 3) {
+            int bits = ((data[i] & 0xFF) << 16) | ((data[i + 1] & 0xFF) << 8) | (data[i + 2] & 0xFF);
+            sb.append(BASE64_URL[(bits >> 18) & 0x3F])
+                .append(BASE64_URL[(bits >> 12) & 0x3F])
+                .append(BASE64_URL[(bits >> 6) & 0x3F])
+                .append(BASE64_URL[bits & 0x3F]);
+        }
+        int remaining = data.length - i;
+        if (remaining > 0) {
+            int bits = (data[i] & 0xFF) << 16;
+            if (remaining == 2) {
+                bits |= (data[i + 1] & 0xFF) << 8;
+            }
+            sb.append(BASE64_URL[(bits >> 18) & 0x3F]).append(BASE64_URL[(bits >> 12) & 0x3F]);
+            if (remaining == 2) {
+                sb.append(BASE64_URL[(bits >> 6) & 0x3F]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static ExecutorService createExecutor() {
+        // no thread is kept while the pool is full
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public static class Pkce {
+
+        final String codeVerifier;
+        final String codeChallenge;
+        final String state;
+
+        Pkce(String codeVerifier, String codeChallenge, String state) {
+            this.codeVerifier = codeVerifier;
+            this.codeChallenge = codeChallenge;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.getcapacitor.community.genericoauth2;
+
+import androidx.browser.customtabs.CustomTabsIntent;
+import net.openid.appauth.AuthorizationRequest;
+
+/**
+ * Authorization request built by prepareAuthentication incl. PKCE verifier and state, waiting to be launched by authenticate.
+ */
+public class PreparedAuthorization {
+
+    private final String callData;
+    private final OAuth2Options options;
+    private final AuthorizationRequest request;
+    private final CustomTabsIntent customTabsIntent;
+    private final long preparedAt;
+
+    public PreparedAuthorization(
+        String callData,
+        OAuth2Options options,
+        AuthorizationRequest request,
+        CustomTabsIntent customTabsIntent,
+        long preparedAt
+    ) {
+        this.callData = callData;
+        this.options = options;
+        this.request = request;
+        this.customTabsIntent = customTabsIntent;
+        this.preparedAt = preparedAt;
+    }
+
+    /**
+     * @return true if authenticate was called with the same options and the preparation is not older than maxAge.
+     */
+    public boolean matches(String callData, long now, long maxAge) {
+        return this.callData.equals(callData) && now - preparedAt <= maxAge;
+    }
+
+    public OAuth2Options getOptions() {
+        return options;
+    }
+
+    public AuthorizationRequest getRequest() {
+        return request;
+    }
+
+    public CustomTabsIntent getCustomTabsIntent() {
+        return customTabsIntent;
+    }
+}
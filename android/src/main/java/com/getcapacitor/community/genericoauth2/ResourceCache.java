@@ -0,0 +1,404 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.util.Log;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Disk cache of the resourceUrl responses, one file per resource url and token subject. The least recently used files are
+ * deleted once the cache exceeds its size. Only the resource's own JSON is stored, never the tokens assigned to the result.
+ * The files are encrypted like the auth state, as the responses are personal data, e.g. the userinfo.
+ * The cache's lock only guards the index, reading and writing a file takes the lock of its key.
+ */
+public class ResourceCache {
+
+    private static final String KEY_BODY = "body";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+    private static final String KEY_EXPIRES_AT = "expiresAt";
+    private static final String TMP_SUFFIX = ".tmp";
+    // hex characters of the key identifying the subject
+    private static final int SUBJECT_PREFIX_LENGTH = 16;
+    private static final int LOCK_STRIPES = 16;
+
+    interface Revalidation {
+        void run() throws Exception;
+    }
+
+    private final File directory;
+    private final long maxSize;
+    private final boolean staleWhileRevalidate;
+    private final KeystoreCipher cipher;
+    private final String logTag;
+    // guard the files, keys with the same stripe share one
+    private final Object[] fileLocks = new Object[LOCK_STRIPES];
+    // file sizes in access order, the eldest is evicted first
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private boolean loaded;
+    private final Set<String> revalidating = new HashSet<>();
+    private final ExecutorService revalidationExecutor = Executors.newSingleThreadExecutor();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    /**
+     * @param staleWhileRevalidate return an expired response at once and revalidate it in the background
+     */
+    public ResourceCache(File directory, long maxSize, boolean staleWhileRevalidate, KeystoreCipher cipher, String logTag) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.cipher = cipher;
+        this.logTag = logTag;
+        for (int i = 0; i < fileLocks.length; i++) {
+            fileLocks[i] = new Object();
+        }
+    }
+
+    public boolean isStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    /**
+     * The key starts with a hash of the subject, so the responses of one user can be removed without knowing their urls.
+     * @return the key or null if the response must not be cached, because the user is unknown
+     */
+    static String key(String resourceUrl, String subject) {
+        if (subject == null) {
+            return null;
+        }
+        return subjectPrefix(subject) + sha256Hex(resourceUrl + "\n" + subject).substring(SUBJECT_PREFIX_LENGTH);
+    }
+
+    private static String subjectPrefix(String subject) {
+        return sha256Hex(subject).substring(0, SUBJECT_PREFIX_LENGTH);
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @return the sub claim of the ID token, its signature is not checked
+     */
+    static String subjectOf(String idToken) {
+        if (idToken == null) {
+            return null;
+        }
+        String[] parts = idToken.split("\\.");
+        if (parts.length < 2) {
+            return null;
+        }
+        try {
+            JSONObject claims = new JSONObject(new String(JwksCache.decodeBase64Url(parts[1]), StandardCharsets.UTF_8));
+            return claims.optString("sub", null);
+        } catch (JSONException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Must not be called on the main thread.
+     */
+    public Entry get(String key) {
+        synchronized (this) {
+            ensureLoaded();
+            if (index.get(key) == null) {
+                return null;
+            }
+        }
+        File file = new File(directory, key);
+        try {
+            byte[] data;
+            synchronized (fileLock(key)) {
+                data = readFile(file);
+                file.setLastModified(System.currentTimeMillis());
+            }
+            JSONObject json = new JSONObject(new String(cipher.decrypt(data), StandardCharsets.UTF_8));
+            return new Entry(
+                json.getString(KEY_BODY),
+                json.optString(KEY_ETAG, null),
+                json.optString(KEY_LAST_MODIFIED, null),
+                json.getLong(KEY_EXPIRES_AT)
+            );
+        } catch (IOException | JSONException | GeneralSecurityException e) {
+            // also written by a former version without encryption or with a key that is gone
+            Log.w(logTag, "Cached resource response is invalid and is discarded.", e);
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Must not be called on the main thread.
+     */
+    public void put(String key, Entry entry) {
+        byte[] data;
+        try {
+            JSONObject json = new JSONObject();
+            json.put(KEY_BODY, entry.body);
+            json.put(KEY_ETAG, entry.etag);
+            json.put(KEY_LAST_MODIFIED, entry.lastModified);
+            json.put(KEY_EXPIRES_AT, entry.expiresAt);
+            data = cipher.encrypt(json.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException | GeneralSecurityException e) {
+            Log.w(logTag, "Resource response could not be cached.", e);
+            remove(key);
+            return;
+        }
+        if (data.length > maxSize) {
+            remove(key);
+            return;
+        }
+        synchronized (this) {
+            ensureLoaded();
+        }
+        File file = new File(directory, key);
+        File tmp = new File(directory, key + TMP_SUFFIX);
+        synchronized (fileLock(key)) {
+            try {
+                try (OutputStream out = new FileOutputStream(tmp)) {
+                    out.write(data);
+                }
+                // readers never see a partially written file
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("Could not rename " + tmp);
+                }
+            } catch (IOException e) {
+                Log.w(logTag, "Resource response could not be cached.", e);
+                tmp.delete();
+                remove(key);
+                return;
+            }
+        }
+        List<String> evicted;
+        synchronized (this) {
+            Long previous = index.put(key, (long) data.length);
+            size += data.length - (previous != null ? previous : 0);
+            evicted = evict();
+        }
+        deleteFiles(evicted);
+    }
+
+    public void remove(String key) {
+        synchronized (fileLock(key)) {
+            new File(directory, key).delete();
+            synchronized (this) {
+                Long removed = index.remove(key);
+                if (removed != null) {
+                    size -= removed;
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the responses of the user in the background, e.g. on logout. The other users' responses stay.
+     */
+    public void removeSubject(String subject) {
+        if (subject == null) {
+            // nothing was cached without subject
+            return;
+        }
+        final String prefix = subjectPrefix(subject);
+        revalidationExecutor.execute(() -> {
+            List<String> removed = new ArrayList<>();
+            synchronized (this) {
+                ensureLoaded();
+                Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Long> entry = it.next();
+                    if (entry.getKey().startsWith(prefix)) {
+                        it.remove();
+                        size -= entry.getValue();
+                        removed.add(entry.getKey());
+                    }
+                }
+            }
+            deleteFiles(removed);
+        });
+    }
+
+    /**
+     * Runs the revalidation on a background thread, unless the entry is already being revalidated.
+     */
+    public void revalidateInBackground(final String key, final Revalidation revalidation) {
+        synchronized (this) {
+            if (!revalidating.add(key)) {
+                return;
+            }
+        }
+        revalidationExecutor.execute(() -> {
+            try {
+                revalidation.run();
+            } catch (Exception e) {
+                // the stale response stays, the next lookup tries again
+                Log.w(logTag, "Revalidation of a resource response failed.", e);
+            } finally {
+                synchronized (this) {
+                    revalidating.remove(key);
+                }
+            }
+        });
+    }
+
+    public void shutdown() {
+        revalidationExecutor.shutdownNow();
+    }
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public void recordRevalidation() {
+        revalidations.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Drops the eldest entries from the index until it fits.
+     * @return the keys of the files to delete, it is done outside of the cache's lock
+     */
+    private List<String> evict() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            size -= eldest.getValue();
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+
+    private void deleteFiles(List<String> keys) {
+        for (String key : keys) {
+            synchronized (fileLock(key)) {
+                synchronized (this) {
+                    if (index.containsKey(key)) {
+                        // written again meanwhile
+                        continue;
+                    }
+                }
+                new File(directory, key).delete();
+            }
+        }
+    }
+
+    private Object fileLock(String key) {
+        return fileLocks[(key.hashCode() & Integer.MAX_VALUE) % fileLocks.length];
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(logTag, "Resource cache directory " + directory + " could not be created.");
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // the modification time is updated on every read, so it restores the access order
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (file.getName().endsWith(TMP_SUFFIX)) {
+                file.delete();
+            } else {
+                index.put(file.getName(), file.length());
+                size += file.length();
+            }
+        }
+        // nothing reads a file before the index is loaded, so no file lock is needed
+        for (String key : evict()) {
+            new File(directory, key).delete();
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int readCount;
+            while ((readCount = in.read(buffer)) != -1) {
+                out.write(buffer, 0, readCount);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    public static class Entry {
+
+        final String body;
+        final String etag;
+        final String lastModified;
+        // wall clock as it is persisted across app starts
+        final long expiresAt;
+
+        public Entry(String body, String etag, String lastModified, long expiresAt) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.getcapacitor.JSObject;
 public class ResourceCallResult {
 
     private boolean error;
+    private String errorCode;
     private String errorMsg;
     private JSObject response;
 
@@ -24,6 +25,14 @@ public class ResourceCallResult {
         this.response = response;
     }
 
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+
     public String getErrorMsg() {
         return errorMsg;
     }
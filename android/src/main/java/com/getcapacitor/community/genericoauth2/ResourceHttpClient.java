@@ -0,0 +1,274 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Shared HTTP client of the resource requests. Connections go back to the platform's keep-alive pool instead of being
+ * disconnected and all HTTPS connections share one SSLContext, so new connections to a known host resume the TLS session.
+ */
+public class ResourceHttpClient {
+
+    static final int DEFAULT_CONNECT_TIMEOUT = 15 * 1000;
+    static final int DEFAULT_READ_TIMEOUT = 30 * 1000;
+    static final long DEFAULT_MAX_BODY_SIZE = 5 * 1024 * 1024;
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+    static final int MAX_PARALLEL_REQUESTS = 8;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final long maxBodySize;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreakerRegistry circuitBreakers;
+    // the same factory instance for every connection, otherwise the pool does not reuse the connections
+    private final SSLSocketFactory sslSocketFactory;
+
+    private final ExecutorService fanOutExecutor = new ThreadPoolExecutor(
+        0,
+        MAX_PARALLEL_REQUESTS,
+        KEEP_ALIVE_SECONDS,
+        TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(),
+        new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong httpsRequests = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+
+    public ResourceHttpClient(int connectTimeout, int readTimeout, long maxBodySize) {
+        this(connectTimeout, readTimeout, maxBodySize, new RetryPolicy(0, 0, 0), new CircuitBreakerRegistry(0, 0));
+    }
+
+    /**
+     * @param maxBodySize maximum size of a response body in bytes, 0 or less for no limit
+     */
+    public ResourceHttpClient(
+        int connectTimeout,
+        int readTimeout,
+        long maxBodySize,
+        RetryPolicy retryPolicy,
+        CircuitBreakerRegistry circuitBreakers
+    ) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.maxBodySize = maxBodySize;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreakers = circuitBreakers;
+        this.sslSocketFactory = new CountingSSLSocketFactory(createSslContext().getSocketFactory());
+    }
+
+    public HttpURLConnection open(String url) throws IOException {
+        return open(url, 0);
+    }
+
+    /**
+     * @param timeout connect and read timeout in milliseconds, 0 for the configured ones
+     */
+    public HttpURLConnection open(String url, int timeout) throws IOException {
+        HttpURLConnection conn = openConnection(url, timeout > 0 ? timeout : connectTimeout, timeout > 0 ? timeout : readTimeout);
+        // the platform would negotiate gzip on its own, but then the compressed size cannot be counted
+        conn.setRequestProperty("Accept-Encoding", ACCEPT_ENCODING);
+        return conn;
+    }
+
+    /**
+     * Opens a connection of the shared pool without negotiating the Content-Encoding, so the platform decompresses
+     * the body transparently, e.g. for AppAuth which reads the body as is.
+     */
+    public HttpURLConnection openConnection(String url, int connectTimeout, int readTimeout) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(connectTimeout);
+        conn.setReadTimeout(readTimeout);
+        requests.incrementAndGet();
+        if (conn instanceof HttpsURLConnection) {
+            httpsRequests.incrementAndGet();
+            ((HttpsURLConnection) conn).setSSLSocketFactory(sslSocketFactory);
+        }
+        return conn;
+    }
+
+    /**
+     * Runs a request in parallel to the calling thread. If all threads are busy it runs on the calling thread, so a request
+     * waiting for others cannot deadlock the pool.
+     */
+    public <T> Future<T> submit(Callable<T> request) {
+        return fanOutExecutor.submit(request);
+    }
+
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    /**
+     * Must be called once the response was handled. A connection whose body was read completely and closed
+     * stays in the pool, any other one is disconnected.
+     */
+    public void release(HttpURLConnection conn, boolean bodyConsumed) {
+        if (!bodyConsumed) {
+            conn.disconnect();
+        }
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public CircuitBreakerRegistry getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Only HTTPS connections can be counted, plain HTTP requests are neither hits nor misses.
+     */
+    public long getPoolHits() {
+        return Math.max(0, httpsRequests.get() - connectionsOpened.get());
+    }
+
+    public long getPoolMisses() {
+        return connectionsOpened.get();
+    }
+
+    /**
+     * Wraps the body for its Content-Encoding, so it is decompressed while it is read.
+     */
+    static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return in;
+        }
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "":
+            case "identity":
+                return in;
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(in);
+            case "deflate":
+                return inflate(in);
+            default:
+                throw new IOException("Unsupported Content-Encoding " + contentEncoding);
+        }
+    }
+
+    private static InputStream inflate(InputStream in) throws IOException {
+        // deflate is meant to be zlib wrapped, but some servers send the raw stream
+        PushbackInputStream pushback = new PushbackInputStream(in, 2);
+        byte[] header = new byte[2];
+        int n = 0;
+        int read;
+        while (n < header.length && (read = pushback.read(header, n, header.length - n)) != -1) {
+            n += read;
+        }
+        pushback.unread(header, 0, n);
+        boolean zlib = n == 2 && (header[0] & 0x0F) == 8 && (((header[0] & 0xFF) << 8) | (header[1] & 0xFF)) % 31 == 0;
+        final Inflater inflater = new Inflater(!zlib);
+        return new InflaterInputStream(pushback, inflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // only the stream's default inflater is released by close
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    private static SSLContext createSslContext() {
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, null, null);
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("TLS is not available", e);
+        }
+    }
+
+    /**
+     * Every socket created is a connection the pool could not serve.
+     */
+    private class CountingSSLSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory delegate;
+
+        CountingSSLSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            connectionsOpened.incrementAndGet();
+            return delegate.createSocket(s, host, port, autoClose);
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            connectionsOpened.incrementAndGet();
+            return delegate.createSocket();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            connectionsOpened.incrementAndGet();
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            connectionsOpened.incrementAndGet();
+            return delegate.createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            connectionsOpened.incrementAndGet();
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            connectionsOpened.incrementAndGet();
+            return delegate.createSocket(address, port, localAddress, localPort);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the work after the token flow, e.g. the resource request, on a bounded pool and hands the result back to the main thread.
+ * Unlike AsyncTask's serial executor one slow request does not hold back the following ones.
+ */
+public class ResourcePipeline {
+
+    static final int MAX_THREADS = 4;
+    static final int QUEUE_CAPACITY = 32;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    interface Callback<T> {
+        void onComplete(T value);
+    }
+
+    /**
+     * Implemented by work that starts work of its own, e.g. requests on another pool, to stop it when the call is cancelled.
+     */
+    interface Cancellable {
+        void cancel();
+    }
+
+    private final ExecutorService executor;
+    private final Executor mainThreadExecutor;
+    private final Map<String, Task<?>> pending = new HashMap<>();
+
+    public ResourcePipeline() {
+        this(createExecutor(), new Handler(Looper.getMainLooper())::post);
+    }
+
+    ResourcePipeline(ExecutorService executor, Executor mainThreadExecutor) {
+        this.executor = executor;
+        this.mainThreadExecutor = mainThreadExecutor;
+    }
+
+    /**
+     * Runs the work in the background and passes its result or exception to the callbacks on the main thread.
+     * Nothing is delivered if the work was cancelled meanwhile.
+     * @param callId identifies the work for {@link #cancel(String)}, usually the callback id of the PluginCall
+     */
+    public <T> void submit(String callId, Callable<T> work, Callback<T> onResult, Callback<Exception> onError) {
+        Task<T> task = new Task<>(callId, work, onResult, onError);
+        synchronized (this) {
+            pending.put(callId, task);
+        }
+        try {
+            task.future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            remove(task);
+            onError.onComplete(e);
+        }
+    }
+
+    /**
+     * @return true if the work was still pending, i.e. its result will not be delivered now
+     */
+    public boolean cancel(String callId) {
+        Task<?> task;
+        synchronized (this) {
+            task = pending.remove(callId);
+        }
+        if (task != null) {
+            task.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    public void cancelAll() {
+        List<Task<?>> tasks;
+        synchronized (this) {
+            tasks = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        for (Task<?> task : tasks) {
+            task.cancel();
+        }
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    private synchronized boolean remove(Task<?> task) {
+        // a newer submit with the same id must not be removed
+        if (pending.get(task.callId) == task) {
+            pending.remove(task.callId);
+            return true;
+        }
+        return false;
+    }
+
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_THREADS,
+            MAX_THREADS,
+            KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(QUEUE_CAPACITY)
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private class Task<T> implements Runnable {
+
+        private final String callId;
+        private final Callable<T> work;
+        private final Callback<T> onResult;
+        private final Callback<Exception> onError;
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        Task(String callId, Callable<T> work, Callback<T> onResult, Callback<Exception> onError) {
+            this.callId = callId;
+            this.work = work;
+            this.onResult = onResult;
+            this.onError = onError;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                final T result = work.call();
+                deliver(() -> onResult.onComplete(result));
+            } catch (Exception e) {
+                deliver(() -> onError.onComplete(e));
+            }
+        }
+
+        private void deliver(Runnable callback) {
+            mainThreadExecutor.execute(() -> {
+                // checked on the main thread as well, the call might have been cancelled while the result was queued
+                if (!cancelled && remove(this)) {
+                    callback.run();
+                }
+            });
+        }
+
+        void cancel() {
+            cancelled = true;
+            Future<?> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+            if (work instanceof Cancellable) {
+                ((Cancellable) work).cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.os.SystemClock;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import org.json.JSONException;
+
+/**
+ * Sends a request of JS with the session's access token through the shared {@link ResourceHttpClient} and resolves with
+ * status, headers and body. Runs on the {@link ResourcePipeline}.
+ */
+public class ResourceRequestTask implements Callable<ResourceCallResult> {
+
+    static final String METHOD_GET = "GET";
+    static final String METHOD_POST = "POST";
+    static final String METHOD_PUT = "PUT";
+    static final String METHOD_DELETE = "DELETE";
+
+    private static final String ERR_NO_ACCESS_TOKEN = "ERR_NO_ACCESS_TOKEN";
+    private static final String ERR_RESOURCE_TOO_LARGE = "ERR_RESOURCE_TOO_LARGE";
+    private static final String ERR_CIRCUIT_OPEN = "ERR_CIRCUIT_OPEN";
+    private static final String ERR_GENERAL = "ERR_GENERAL";
+
+    private final OAuth2Options options;
+    private final String logTag;
+    private final ResourceHttpClient httpClient;
+    private final String method;
+    private final String url;
+    private final Map<String, String> headers;
+    private final byte[] body;
+    private final int timeout;
+    private final ResourceUrlTask.AccessTokenRefresher accessTokenRefresher;
+    private String accessToken;
+    private final boolean refreshFirst;
+
+    /**
+     * @param options the session's options, their additionalResourceHeaders are sent with the request
+     * @param headers headers of this request, they replace additional resource headers of the same name
+     * @param body null if there is none
+     * @param timeout connect and read timeout in milliseconds, 0 for the configured ones
+     * @param refreshFirst the access token is expired and is refreshed before the request is sent
+     */
+    public ResourceRequestTask(
+        OAuth2Options options,
+        String logTag,
+        ResourceHttpClient httpClient,
+        String method,
+        String url,
+        Map<String, String> headers,
+        byte[] body,
+        int timeout,
+        ResourceUrlTask.AccessTokenRefresher accessTokenRefresher,
+        String accessToken,
+        boolean refreshFirst
+    ) {
+        this.options = options;
+        this.logTag = logTag;
+        this.httpClient = httpClient;
+        this.method = method;
+        this.url = url;
+        this.headers = headers;
+        this.body = body;
+        this.timeout = timeout;
+        this.accessTokenRefresher = accessTokenRefresher;
+        this.accessToken = accessToken;
+        this.refreshFirst = refreshFirst;
+    }
+
+    static boolean isSupportedMethod(String method) {
+        return METHOD_GET.equals(method) || METHOD_POST.equals(method) || METHOD_PUT.equals(method) || METHOD_DELETE.equals(method);
+    }
+
+    /**
+     * A POST might have been processed even if its response got lost, so it is never retried.
+     */
+    static boolean isIdempotent(String method) {
+        return !METHOD_POST.equals(method);
+    }
+
+    @Override
+    public ResourceCallResult call() throws InterruptedException {
+        ResourceCallResult result = new ResourceCallResult();
+        boolean accessTokenRefreshed = false;
+        if (this.refreshFirst) {
+            this.accessToken = this.accessTokenRefresher.refresh(this.accessToken);
+            if (this.accessToken == null) {
+                result.setError(true);
+                result.setErrorCode(ERR_NO_ACCESS_TOKEN);
+                return result;
+            }
+            accessTokenRefreshed = true;
+        }
+        Log.i(logTag, "Request: " + method + " " + url);
+        try {
+            Response response = sendWithRetry(this.accessToken);
+            if (response.code == HttpURLConnection.HTTP_UNAUTHORIZED && !accessTokenRefreshed) {
+                String refreshedAccessToken = this.accessTokenRefresher.refresh(this.accessToken);
+                if (refreshedAccessToken != null) {
+                    Log.i(logTag, "Access token was rejected, replaying with the refreshed one: " + method + " " + url);
+                    this.accessToken = refreshedAccessToken;
+                    accessTokenRefreshed = true;
+                    response = sendWithRetry(refreshedAccessToken);
+                }
+            }
+            JSObject json = new JSObject();
+            json.put("status", response.code);
+            json.put("headers", response.headers);
+            if (response.data != null) {
+                json.put("data", response.data);
+            }
+            if (accessTokenRefreshed) {
+                json.put("access_token_refreshed", true);
+                json.put("access_token", this.accessToken);
+            }
+            if (options.isLogsEnabled()) {
+                Log.i(logTag, "Returned to JS:\n" + json);
+            }
+            result.setResponse(json);
+        } catch (CountingInputStream.LimitExceededException e) {
+            result.setError(true);
+            result.setErrorCode(ERR_RESOURCE_TOO_LARGE);
+            result.setErrorMsg(e.getMessage());
+        } catch (CircuitBreakerRegistry.OpenException e) {
+            result.setError(true);
+            result.setErrorCode(ERR_CIRCUIT_OPEN);
+            result.setErrorMsg(e.getMessage());
+        } catch (IOException | JSONException e) {
+            Log.e(logTag, "Request failed: " + method + " " + url, e);
+            result.setError(true);
+            result.setErrorCode(ERR_GENERAL);
+            result.setErrorMsg(e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Retries transient failures of idempotent requests according to the retry policy, unless the endpoint's circuit breaker is open.
+     */
+    private Response sendWithRetry(String accessToken) throws IOException, JSONException {
+        String endpoint = CircuitBreakerRegistry.endpointOf(url);
+        CircuitBreakerRegistry circuitBreakers = this.httpClient.getCircuitBreakers();
+        RetryPolicy retryPolicy = this.httpClient.getRetryPolicy();
+        boolean idempotent = isIdempotent(method);
+        for (int retry = 1;; retry++) {
+            circuitBreakers.acquire(endpoint, SystemClock.elapsedRealtime());
+            Response response;
+            try {
+                response = send(accessToken);
+            } catch (IOException e) {
+                if (!RetryPolicy.isRetryable(e)) {
+                    // the endpoint itself is not the problem
+                    circuitBreakers.recordSuccess(endpoint);
+                    throw e;
+                }
+                circuitBreakers.recordFailure(endpoint, SystemClock.elapsedRealtime());
+                long delay = idempotent ? retryPolicy.delay(retry, null, System.currentTimeMillis()) : -1;
+                if (delay < 0) {
+                    throw e;
+                }
+                Log.w(logTag, method + " " + url + " failed, retry in " + delay + " ms", e);
+                RetryPolicy.sleep(delay);
+                continue;
+            } catch (JSONException | RuntimeException e) {
+                circuitBreakers.recordSuccess(endpoint);
+                throw e;
+            }
+            if (!RetryPolicy.isRetryableStatus(response.code)) {
+                circuitBreakers.recordSuccess(endpoint);
+                return response;
+            }
+            circuitBreakers.recordFailure(endpoint, SystemClock.elapsedRealtime());
+            long delay = idempotent ? retryPolicy.delay(retry, response.retryAfter, System.currentTimeMillis()) : -1;
+            if (delay < 0) {
+                return response;
+            }
+            Log.w(logTag, method + " " + url + " returned HTTP " + response.code + ", retry in " + delay + " ms");
+            RetryPolicy.sleep(delay);
+        }
+    }
+
+    private Response send(String accessToken) throws IOException, JSONException {
+        HttpURLConnection conn = this.httpClient.open(url, timeout);
+        conn.setRequestMethod(method);
+        if (options.getAdditionalResourceHeaders() != null) {
+            for (Map.Entry<String, String> entry : options.getAdditionalResourceHeaders().entrySet()) {
+                conn.setRequestProperty(entry.getKey(), entry.getValue());
+            }
+        }
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                conn.setRequestProperty(entry.getKey(), entry.getValue());
+            }
+        }
+        conn.setRequestProperty("Authorization", String.format("Bearer %s", accessToken));
+
+        Response response = new Response();
+        InputStream is = null;
+        boolean bodyConsumed = false;
+        try {
+            if (body != null) {
+                conn.setDoOutput(true);
+                // written straight to the socket instead of being buffered again by the connection
+                conn.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            response.code = conn.getResponseCode();
+            response.retryAfter = conn.getHeaderField("Retry-After");
+            response.headers = buildHeaders(conn.getHeaderFields());
+            long maxBodySize = this.httpClient.getMaxBodySize();
+            if (maxBodySize > 0 && conn.getContentLength() > maxBodySize) {
+                // fail before reading anything, the connection is disconnected in release
+                throw new CountingInputStream.LimitExceededException(maxBodySize);
+            }
+            is = response.code < HttpURLConnection.HTTP_BAD_REQUEST ? conn.getInputStream() : conn.getErrorStream();
+            if (is != null) {
+                is = new CountingInputStream(ResourceHttpClient.decode(is, conn.getContentEncoding()), maxBodySize);
+                response.data = readBody(is, conn.getContentType());
+            }
+            bodyConsumed = true;
+            return response;
+        } finally {
+            this.httpClient.release(conn, bodyConsumed);
+            if (is != null) {
+                is.close();
+            }
+        }
+    }
+
+    /**
+     * @return the parsed JSON for a JSON Content-Type, otherwise the text, or null if the body is empty
+     */
+    private static Object readBody(InputStream in, String contentType) throws IOException, JSONException {
+        PushbackInputStream pushback = new PushbackInputStream(in, 1);
+        int first = pushback.read();
+        if (first == -1) {
+            return null;
+        }
+        pushback.unread(first);
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")) {
+            return JsonStreamParser.parseValue(pushback, contentType);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int readCount;
+        while ((readCount = pushback.read(buffer)) != -1) {
+            out.write(buffer, 0, readCount);
+        }
+        return new String(out.toByteArray(), JsonStreamParser.charsetOf(contentType));
+    }
+
+    /**
+     * Header names in lower case, values of repeated headers joined by comma.
+     */
+    static JSObject buildHeaders(Map<String, List<String>> headerFields) {
+        JSObject headers = new JSObject();
+        for (Map.Entry<String, List<String>> entry : headerFields.entrySet()) {
+            // the null key is the status line
+            if (entry.getKey() == null) {
+                continue;
+            }
+            StringBuilder value = new StringBuilder();
+            for (String v : entry.getValue()) {
+                if (value.length() > 0) {
+                    value.append(", ");
+                }
+                value.append(v);
+            }
+            headers.put(entry.getKey().toLowerCase(Locale.ROOT), value.toString());
+        }
+        return headers;
+    }
+
+    private static class Response {
+
+        int code;
+        JSObject headers;
+        Object data;
+        String retryAfter;
+    }
+}
@@ -0,0 +1,600 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.os.SystemClock;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import net.openid.appauth.AuthorizationResponse;
+import net.openid.appauth.TokenResponse;
+import org.json.JSONException;
+
+/**
+ * Fetches the resourceUrl with the access token and assembles the result for JS. Runs on the {@link ResourcePipeline}.
+ */
+public class ResourceUrlTask implements Callable<ResourceCallResult>, ResourcePipeline.Cancellable {
+
+    interface AccessTokenRefresher {
+        /**
+         * Blocks until the session's access token was refreshed.
+         * @return the new access token or null if it could not be refreshed
+         */
+        String refresh(String rejectedAccessToken) throws InterruptedException;
+    }
+
+    private static final String ERR_NO_ACCESS_TOKEN = "ERR_NO_ACCESS_TOKEN";
+    private static final String ERR_ID_TOKEN_INVALID = "ERR_ID_TOKEN_INVALID";
+    private static final String ERR_RESOURCE_TOO_LARGE = "ERR_RESOURCE_TOO_LARGE";
+    private static final String ERR_GENERAL = "ERR_GENERAL";
+    private static final String ERR_CIRCUIT_OPEN = "ERR_CIRCUIT_OPEN";
+    private static final String MSG_RETURNED_TO_JS = "Returned to JS:\n";
+    private static final String CACHE_HIT = "hit";
+    private static final String CACHE_STALE = "stale";
+    private static final String CACHE_REVALIDATED = "revalidated";
+    private static final String CACHE_MISS = "miss";
+
+    private final OAuth2Options options;
+    private final String logTag;
+    private final ResourceHttpClient httpClient;
+    private final ResourceCache cache;
+    private final AuthorizationResponse authorizationResponse;
+    private final TokenResponse accessTokenResponse;
+    private final IdTokenValidator idTokenValidator;
+    private final AccessTokenRefresher accessTokenRefresher;
+    // replaced once the resource server rejected it and it was refreshed
+    private volatile String accessToken;
+    private boolean refreshAttempted;
+    private boolean accessTokenRefreshed;
+    private volatile boolean cancelled;
+    // the named resources loading on the http client's pool
+    private volatile Map<String, Future<Resource>> fanOut;
+
+    public ResourceUrlTask(
+        OAuth2Options options,
+        String logTag,
+        ResourceHttpClient httpClient,
+        ResourceCache cache,
+        AuthorizationResponse authorizationResponse,
+        TokenResponse accessTokenResponse,
+        IdTokenValidator idTokenValidator,
+        AccessTokenRefresher accessTokenRefresher,
+        String accessToken
+    ) {
+        this.options = options;
+        this.logTag = logTag;
+        this.httpClient = httpClient;
+        this.cache = cache;
+        this.authorizationResponse = authorizationResponse;
+        this.accessTokenResponse = accessTokenResponse;
+        this.idTokenValidator = idTokenValidator;
+        this.accessTokenRefresher = accessTokenRefresher;
+        this.accessToken = accessToken;
+    }
+
+    @Override
+    public ResourceCallResult call() {
+        ResourceCallResult result = new ResourceCallResult();
+        boolean idTokenValidated = false;
+        if (this.idTokenValidator != null && this.accessTokenResponse != null && this.accessTokenResponse.idToken != null) {
+            try {
+                String nonce = this.authorizationResponse != null ? this.authorizationResponse.request.nonce : null;
+                this.idTokenValidator.validate(this.accessTokenResponse.idToken, options.getIssuer(), options.getAppId(), nonce);
+                idTokenValidated = true;
+            } catch (IOException | GeneralSecurityException e) {
+                Log.e(logTag, "ID token validation failed", e);
+                result.setError(true);
+                result.setErrorCode(ERR_ID_TOKEN_INVALID);
+                result.setErrorMsg(e.getMessage());
+                return result;
+            }
+        }
+
+        String resourceUrl = options.getResourceUrl();
+        Map<String, String> resourceUrls = options.getResourceUrls();
+        if (resourceUrl != null || resourceUrls != null) {
+            if (resourceUrl != null) {
+                Log.i(logTag, "Resource url: GET " + resourceUrl);
+            }
+            if (accessToken != null) {
+                if (options.isLogsEnabled()) {
+                    Log.i(logTag, "Access token:\n" + accessToken);
+                }
+
+                // the named resources load in parallel to the resourceUrl
+                Map<String, Future<Resource>> fanOut = resourceUrls != null ? startFanOut(resourceUrls) : null;
+                this.fanOut = fanOut;
+                if (cancelled) {
+                    // cancelled while the fan-out was started
+                    cancelFanOut();
+                }
+                JSObject resultJson = null;
+                JSObject stats = null;
+                if (resourceUrl == null) {
+                    resultJson = new JSObject();
+                } else {
+                    try {
+                        Resource resource = load(resourceUrl, 0);
+                        if (resource.json != null) {
+                            resultJson = resource.json;
+                            stats = buildResourceStats(resource.wireBytes, resource.decodedBytes, resource.cacheStatus);
+                        } else {
+                            result.setError(true);
+                            result.setErrorMsg(resource.errorBody);
+                        }
+                    } catch (CountingInputStream.LimitExceededException e) {
+                        Log.e(logTag, "Resource response too large.", e);
+                        result.setError(true);
+                        result.setErrorCode(ERR_RESOURCE_TOO_LARGE);
+                        result.setErrorMsg(e.getMessage());
+                    } catch (CircuitBreakerRegistry.OpenException e) {
+                        Log.w(logTag, e.getMessage());
+                        result.setError(true);
+                        result.setErrorCode(ERR_CIRCUIT_OPEN);
+                        result.setErrorMsg(e.getMessage());
+                    } catch (MalformedURLException e) {
+                        Log.e(logTag, "Invalid resource url '" + resourceUrl + "'", e);
+                    } catch (IOException e) {
+                        Log.e(logTag, "Unexpected error", e);
+                    } catch (JSONException e) {
+                        Log.e(logTag, "Resource response no valid json.", e);
+                    }
+                }
+                if (resultJson != null) {
+                    if (options.isLogsEnabled()) {
+                        Log.i(logTag, "Resource response:\n" + resultJson);
+                    }
+                    if (fanOut != null) {
+                        collectFanOut(fanOut, resultJson);
+                    }
+                    OAuth2Utils.assignResponses(resultJson, accessToken, this.authorizationResponse, this.accessTokenResponse);
+                    if (idTokenValidated) {
+                        resultJson.put("id_token_validated", true);
+                    }
+                    if (isAccessTokenRefreshed()) {
+                        resultJson.put("access_token_refreshed", true);
+                    }
+                    if (stats != null) {
+                        resultJson.put("resource_stats", stats);
+                    }
+                    if (options.isLogsEnabled()) {
+                        Log.i(logTag, MSG_RETURNED_TO_JS + resultJson);
+                    }
+                    result.setResponse(resultJson);
+                } else {
+                    cancelFanOut();
+                }
+            } else {
+                if (options.isLogsEnabled()) {
+                    Log.i(
+                        logTag,
+                        "No accessToken was provided although you configured a resourceUrl. Remove the resourceUrl from the config."
+                    );
+                }
+                result.setError(true);
+                result.setErrorCode(ERR_NO_ACCESS_TOKEN);
+            }
+        } else {
+            JSObject json = new JSObject();
+            OAuth2Utils.assignResponses(json, accessToken, this.authorizationResponse, this.accessTokenResponse);
+            if (idTokenValidated) {
+                json.put("id_token_validated", true);
+            }
+            if (options.isLogsEnabled()) {
+                Log.i(logTag, MSG_RETURNED_TO_JS + json);
+            }
+            result.setResponse(json);
+        }
+        return result;
+    }
+
+    /**
+     * Stops the named resources still loading, called when the call was cancelled.
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+        cancelFanOut();
+    }
+
+    private void cancelFanOut() {
+        Map<String, Future<Resource>> futures = this.fanOut;
+        if (futures != null) {
+            for (Future<Resource> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Loads the resource from the cache or the network.
+     * @param timeout connect and read timeout in milliseconds, 0 for the configured ones
+     */
+    private Resource load(String resourceUrl, int timeout) throws IOException, JSONException {
+        String cacheKey = this.cache != null ? ResourceCache.key(resourceUrl, subject()) : null;
+        ResourceCache.Entry cached = cacheKey != null ? this.cache.get(cacheKey) : null;
+        Resource resource = new Resource();
+        if (cached != null && (cached.isFresh(System.currentTimeMillis()) || this.cache.isStaleWhileRevalidate())) {
+            resource.cacheStatus = CACHE_HIT;
+            if (!cached.isFresh(System.currentTimeMillis())) {
+                resource.cacheStatus = CACHE_STALE;
+                revalidateInBackground(resourceUrl, cacheKey, cached);
+            }
+            this.cache.recordHit();
+            resource.json = new JSObject(cached.body);
+            return resource;
+        }
+        if (cached != null) {
+            // once per request, not per retry
+            this.cache.recordRevalidation();
+        }
+        Response response = fetchWithRetry(resourceUrl, cached, timeout, this.accessToken);
+        if (isInvalidToken(response)) {
+            String refreshedAccessToken = refreshAccessToken(response.accessToken);
+            if (refreshedAccessToken != null) {
+                Log.i(logTag, "Access token was rejected, replaying with the refreshed one: GET " + resourceUrl);
+                response = fetchWithRetry(resourceUrl, cached, timeout, refreshedAccessToken);
+            }
+        }
+        resource.wireBytes = response.wireBytes;
+        resource.decodedBytes = response.decodedBytes;
+        if (response.code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            this.cache.recordHit();
+            store(cacheKey, cached, response);
+            resource.json = new JSObject(cached.body);
+            resource.cacheStatus = CACHE_REVALIDATED;
+        } else if (response.json != null) {
+            if (cacheKey != null) {
+                this.cache.recordMiss();
+                store(cacheKey, cached, response);
+                resource.cacheStatus = CACHE_MISS;
+            }
+            resource.json = response.json;
+        } else {
+            resource.code = response.code;
+            resource.errorBody = response.errorBody;
+        }
+        return resource;
+    }
+
+    private Map<String, Future<Resource>> startFanOut(Map<String, String> resourceUrls) {
+        Map<String, Future<Resource>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : resourceUrls.entrySet()) {
+            final String url = entry.getValue();
+            final int timeout = options.getResourceTimeout(entry.getKey());
+            Log.i(logTag, "Resource url " + entry.getKey() + ": GET " + url);
+            futures.put(entry.getKey(), this.httpClient.submit(() -> load(url, timeout)));
+        }
+        return futures;
+    }
+
+    /**
+     * Puts the named resources into resource_responses and the failed ones into resource_errors.
+     */
+    private void collectFanOut(Map<String, Future<Resource>> fanOut, JSObject resultJson) {
+        JSObject responses = new JSObject();
+        JSObject errors = new JSObject();
+        for (Map.Entry<String, Future<Resource>> entry : fanOut.entrySet()) {
+            try {
+                Resource resource = entry.getValue().get();
+                if (resource.json != null) {
+                    responses.put(entry.getKey(), resource.json);
+                } else {
+                    errors.put(entry.getKey(), buildResourceError(ERR_GENERAL, resource.code, resource.errorBody));
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                Log.e(logTag, "Resource " + entry.getKey() + " failed", cause);
+                String errorCode = ERR_GENERAL;
+                if (cause instanceof CountingInputStream.LimitExceededException) {
+                    errorCode = ERR_RESOURCE_TOO_LARGE;
+                } else if (cause instanceof CircuitBreakerRegistry.OpenException) {
+                    errorCode = ERR_CIRCUIT_OPEN;
+                }
+                errors.put(entry.getKey(), buildResourceError(errorCode, 0, cause.getMessage()));
+            } catch (InterruptedException e) {
+                // the call was cancelled, the remaining resources are not waited for
+                Thread.currentThread().interrupt();
+                cancelFanOut();
+                errors.put(entry.getKey(), buildResourceError(ERR_GENERAL, 0, "cancelled"));
+                break;
+            } catch (CancellationException e) {
+                errors.put(entry.getKey(), buildResourceError(ERR_GENERAL, 0, "cancelled"));
+            }
+        }
+        resultJson.put("resource_responses", responses);
+        if (errors.length() > 0) {
+            resultJson.put("resource_errors", errors);
+        }
+    }
+
+    private static JSObject buildResourceError(String code, int status, String message) {
+        JSObject error = new JSObject();
+        error.put("code", code);
+        if (status > 0) {
+            error.put("status", status);
+        }
+        if (message != null) {
+            error.put("message", message);
+        }
+        return error;
+    }
+
+    private static boolean isInvalidToken(Response response) {
+        return (
+            response.code == HttpURLConnection.HTTP_UNAUTHORIZED ||
+            (response.wwwAuthenticate != null && response.wwwAuthenticate.contains("invalid_token"))
+        );
+    }
+
+    /**
+     * Refreshes the access token at most once per task. Requests of the task failing at the same time wait for that refresh.
+     * @return the access token to replay with or null if there is none
+     */
+    private synchronized String refreshAccessToken(String rejectedAccessToken) {
+        if (this.accessTokenRefresher == null) {
+            return null;
+        }
+        if (!rejectedAccessToken.equals(this.accessToken)) {
+            // refreshed by another request of this task meanwhile
+            return this.accessToken;
+        }
+        if (this.refreshAttempted) {
+            return null;
+        }
+        this.refreshAttempted = true;
+        try {
+            String refreshed = this.accessTokenRefresher.refresh(rejectedAccessToken);
+            if (refreshed != null) {
+                this.accessToken = refreshed;
+                this.accessTokenRefreshed = true;
+            }
+            return refreshed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private synchronized boolean isAccessTokenRefreshed() {
+        return this.accessTokenRefreshed;
+    }
+
+    /**
+     * Retries transient failures according to the retry policy, unless the endpoint's circuit breaker is open.
+     */
+    private Response fetchWithRetry(String resourceUrl, ResourceCache.Entry cached, int timeout, String accessToken)
+        throws IOException, JSONException {
+        String endpoint = CircuitBreakerRegistry.endpointOf(resourceUrl);
+        CircuitBreakerRegistry circuitBreakers = this.httpClient.getCircuitBreakers();
+        for (int retry = 1;; retry++) {
+            circuitBreakers.acquire(endpoint, SystemClock.elapsedRealtime());
+            Response response;
+            try {
+                response = fetch(resourceUrl, cached, timeout, accessToken);
+            } catch (IOException e) {
+                if (!RetryPolicy.isRetryable(e)) {
+                    // the endpoint itself is not the problem
+                    circuitBreakers.recordSuccess(endpoint);
+                    throw e;
+                }
+                circuitBreakers.recordFailure(endpoint, SystemClock.elapsedRealtime());
+                backOff(retry, e);
+                continue;
+            } catch (JSONException | RuntimeException e) {
+                circuitBreakers.recordSuccess(endpoint);
+                throw e;
+            }
+            if (!RetryPolicy.isRetryableStatus(response.code)) {
+                circuitBreakers.recordSuccess(endpoint);
+                return response;
+            }
+            circuitBreakers.recordFailure(endpoint, SystemClock.elapsedRealtime());
+            long delay = this.httpClient.getRetryPolicy().delay(retry, response.retryAfter, System.currentTimeMillis());
+            if (delay < 0) {
+                return response;
+            }
+            Log.w(logTag, "GET " + resourceUrl + " returned HTTP " + response.code + ", retry in " + delay + " ms");
+            RetryPolicy.sleep(delay);
+        }
+    }
+
+    /**
+     * Waits before the next retry or throws the failure if there is none.
+     */
+    private void backOff(int retry, IOException failure) throws IOException {
+        long delay = this.httpClient.getRetryPolicy().delay(retry, null, System.currentTimeMillis());
+        if (delay < 0) {
+            throw failure;
+        }
+        Log.w(logTag, "Resource request failed, retry in " + delay + " ms", failure);
+        RetryPolicy.sleep(delay);
+    }
+
+    private Response fetch(String resourceUrl, ResourceCache.Entry cached, int timeout, String accessToken)
+        throws IOException, JSONException {
+        HttpURLConnection conn = this.httpClient.open(resourceUrl, timeout);
+        conn.addRequestProperty("Authorization", String.format("Bearer %s", accessToken));
+        // additional headers
+        if (options.getAdditionalResourceHeaders() != null) {
+            for (Map.Entry<String, String> entry : options.getAdditionalResourceHeaders().entrySet()) {
+                if ("Accept-Encoding".equalsIgnoreCase(entry.getKey())) {
+                    // replaces the negotiated default
+                    conn.setRequestProperty(entry.getKey(), entry.getValue());
+                } else {
+                    conn.addRequestProperty(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        if (cached != null) {
+            if (cached.etag != null) {
+                conn.setRequestProperty("If-None-Match", cached.etag);
+            }
+            if (cached.lastModified != null) {
+                conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+            }
+        }
+
+        Response response = new Response();
+        response.accessToken = accessToken;
+        InputStream is = null;
+        boolean bodyConsumed = false;
+        try {
+            response.code = conn.getResponseCode();
+            response.etag = conn.getHeaderField("ETag");
+            response.lastModified = conn.getHeaderField("Last-Modified");
+            response.cacheControl = conn.getHeaderField("Cache-Control");
+            response.wwwAuthenticate = conn.getHeaderField("WWW-Authenticate");
+            response.retryAfter = conn.getHeaderField("Retry-After");
+            long maxBodySize = this.httpClient.getMaxBodySize();
+            if (maxBodySize > 0 && conn.getContentLength() > maxBodySize) {
+                // fail before reading anything, the connection is disconnected in release
+                throw new CountingInputStream.LimitExceededException(maxBodySize);
+            }
+            if (response.code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                // no body
+                is = conn.getInputStream();
+                bodyConsumed = true;
+            } else if (response.code >= HttpURLConnection.HTTP_OK && response.code < HttpURLConnection.HTTP_MULT_CHOICE) {
+                // counted before and after decompression
+                CountingInputStream wire = new CountingInputStream(conn.getInputStream(), 0);
+                CountingInputStream decoded = new CountingInputStream(ResourceHttpClient.decode(wire, conn.getContentEncoding()), maxBodySize);
+                is = decoded;
+                response.json = JsonStreamParser.parseObject(decoded, conn.getContentType());
+                response.wireBytes = wire.getCount();
+                response.decodedBytes = decoded.getCount();
+                bodyConsumed = true;
+            } else {
+                is = conn.getErrorStream();
+                if (is != null) {
+                    is = new CountingInputStream(ResourceHttpClient.decode(is, conn.getContentEncoding()), maxBodySize);
+                    response.errorBody = readInputStream(is, JsonStreamParser.charsetOf(conn.getContentType()));
+                }
+                bodyConsumed = true;
+            }
+            return response;
+        } finally {
+            this.httpClient.release(conn, bodyConsumed);
+            if (is != null) {
+                is.close();
+            }
+        }
+    }
+
+    private void revalidateInBackground(final String resourceUrl, final String cacheKey, final ResourceCache.Entry cached) {
+        this.cache.revalidateInBackground(
+                cacheKey,
+                () -> {
+                    this.cache.recordRevalidation();
+                    store(cacheKey, cached, fetchWithRetry(resourceUrl, cached, 0, this.accessToken));
+                }
+            );
+    }
+
+    /**
+     * Updates the cache with the response of a request for the entry.
+     */
+    private void store(String cacheKey, ResourceCache.Entry cached, Response response) {
+        if (DiscoveryCache.isNoStore(response.cacheControl)) {
+            this.cache.remove(cacheKey);
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + DiscoveryCache.parseMaxAge(response.cacheControl, 0);
+        if (response.code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            this.cache.put(
+                cacheKey,
+                new ResourceCache.Entry(
+                    cached.body,
+                    response.etag != null ? response.etag : cached.etag,
+                    response.lastModified != null ? response.lastModified : cached.lastModified,
+                    expiresAt
+                )
+            );
+        } else if (response.json != null) {
+            if (response.etag == null && response.lastModified == null && expiresAt <= System.currentTimeMillis()) {
+                // could neither be used nor revalidated
+                this.cache.remove(cacheKey);
+            } else {
+                this.cache.put(cacheKey, new ResourceCache.Entry(response.json.toString(), response.etag, response.lastModified, expiresAt));
+            }
+        } else if (response.code == HttpURLConnection.HTTP_NOT_FOUND || response.code == HttpURLConnection.HTTP_GONE) {
+            this.cache.remove(cacheKey);
+        }
+    }
+
+    private String subject() {
+        if (this.accessTokenResponse != null && this.accessTokenResponse.idToken != null) {
+            return ResourceCache.subjectOf(this.accessTokenResponse.idToken);
+        }
+        if (this.authorizationResponse != null) {
+            return ResourceCache.subjectOf(this.authorizationResponse.idToken);
+        }
+        return null;
+    }
+
+    private JSObject buildResourceStats(long wireBytes, long decodedBytes, String cacheStatus) {
+        JSObject stats = new JSObject();
+        if (this.cache != null) {
+            if (cacheStatus != null) {
+                stats.put("cache", cacheStatus);
+            }
+            stats.put("cache_hits", this.cache.getHits());
+            stats.put("cache_misses", this.cache.getMisses());
+            stats.put("cache_revalidations", this.cache.getRevalidations());
+        }
+        stats.put("wire_bytes", wireBytes);
+        stats.put("decoded_bytes", decodedBytes);
+        stats.put("requests", this.httpClient.getRequests());
+        stats.put("pool_hits", this.httpClient.getPoolHits());
+        stats.put("pool_misses", this.httpClient.getPoolMisses());
+        return stats;
+    }
+
+    private static class Resource {
+
+        JSObject json;
+        int code;
+        String errorBody;
+        String cacheStatus;
+        long wireBytes;
+        long decodedBytes;
+    }
+
+    private static class Response {
+
+        String accessToken;
+        int code;
+        JSObject json;
+        String errorBody;
+        String etag;
+        String lastModified;
+        String cacheControl;
+        String wwwAuthenticate;
+        String retryAfter;
+        long wireBytes;
+        long decodedBytes;
+    }
+
+    private static String readInputStream(InputStream in, Charset charset) throws IOException {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in, charset))) {
+            char[] buffer = new char[1024];
+            StringBuilder sb = new StringBuilder();
+            int readCount;
+            while ((readCount = br.read(buffer)) != -1) {
+                sb.append(buffer, 0, readCount);
+            }
+            return sb.toString();
+        }
+    }
+}
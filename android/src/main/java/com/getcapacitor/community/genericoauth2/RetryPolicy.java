@@ -0,0 +1,142 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import net.openid.appauth.AuthorizationException;
+
+/**
+ * Decides whether and when a failed request is retried. The delay grows exponentially and is fully jittered,
+ * so devices failing at the same moment do not retry in lockstep. A Retry-After of the server takes precedence.
+ */
+public class RetryPolicy {
+
+    static final int DEFAULT_MAX_RETRIES = 2;
+    static final long DEFAULT_BASE_DELAY = 500;
+    static final long DEFAULT_MAX_DELAY = 10 * 1000;
+
+    private final int maxRetries;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final Random random;
+
+    public RetryPolicy(int maxRetries, long baseDelay, long maxDelay) {
+        this(maxRetries, baseDelay, maxDelay, new Random());
+    }
+
+    RetryPolicy(int maxRetries, long baseDelay, long maxDelay, Random random) {
+        this.maxRetries = maxRetries;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.random = random;
+    }
+
+    /**
+     * @param retry number of the retry, starting at 1
+     * @param retryAfter Retry-After header of the failed response or null
+     * @return the delay in milliseconds or -1 if the request must not be retried,
+     * also if the server asks to wait longer than the max delay
+     */
+    public long delay(int retry, String retryAfter, long now) {
+        if (retry > maxRetries) {
+            return -1;
+        }
+        long retryAfterDelay = parseRetryAfter(retryAfter, now);
+        if (retryAfterDelay >= 0) {
+            return retryAfterDelay <= maxDelay ? retryAfterDelay : -1;
+        }
+        long cap = Math.min(maxDelay, baseDelay << Math.min(retry - 1, 30));
+        return (long) (random.nextDouble() * cap);
+    }
+
+    /**
+     * Waits before a retry on a background thread.
+     * @throws InterruptedIOException if the request was cancelled meanwhile
+     */
+    static void sleep(long delay) throws InterruptedIOException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * @return the delay in milliseconds of the delta-seconds or HTTP-date or -1 if there is none
+     */
+    static long parseRetryAfter(String retryAfter, long now) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value)) * 1000;
+        } catch (NumberFormatException e) {
+            // an HTTP-date
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(value).getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    static boolean isRetryableStatus(int code) {
+        switch (code) {
+            case 408:
+            case 429:
+            case 500:
+            case 502:
+            case 503:
+            case 504:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return false for errors a retry cannot fix, e.g. an invalid url or certificate, and if the request was cancelled
+     */
+    static boolean isRetryable(IOException e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        if (e instanceof InterruptedIOException) {
+            // only a timeout, the others are interrupts
+            return e instanceof SocketTimeoutException;
+        }
+        return !(
+            e instanceof CountingInputStream.LimitExceededException ||
+            e instanceof CircuitBreakerRegistry.OpenException ||
+            e instanceof MalformedURLException ||
+            e instanceof SSLHandshakeException ||
+            e instanceof SSLPeerUnverifiedException
+        );
+    }
+
+    /**
+     * AppAuth reports network errors and non JSON responses, e.g. the HTML page of a 503, as general errors.
+     */
+    static boolean isRetryable(AuthorizationException ex) {
+        if (ex.type == AuthorizationException.TYPE_GENERAL_ERROR) {
+            return (
+                ex.code == AuthorizationException.GeneralErrors.NETWORK_ERROR.code ||
+                ex.code == AuthorizationException.GeneralErrors.SERVER_ERROR.code ||
+                ex.code == AuthorizationException.GeneralErrors.JSON_DESERIALIZATION_ERROR.code
+            );
+        }
+        return "server_error".equals(ex.error) || "temporarily_unavailable".equals(ex.error);
+    }
+}
@@ -0,0 +1,73 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.net.Uri;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import net.openid.appauth.connectivity.ConnectionBuilder;
+
+/**
+ * Opens the connections of AppAuth's token requests through the shared {@link ResourceHttpClient}, so token and resource
+ * requests share the keep-alive pool and TLS sessions. Unlike AppAuth's default builder the timeouts are configurable.
+ */
+public class TokenConnectionBuilder implements ConnectionBuilder {
+
+    // the ones of AppAuth's DefaultConnectionBuilder
+    static final int DEFAULT_CONNECT_TIMEOUT = 15 * 1000;
+    static final int DEFAULT_READ_TIMEOUT = 10 * 1000;
+
+    private final ResourceHttpClient httpClient;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final String serverOverride;
+
+    /**
+     * @param serverOverride scheme, host and port every request is sent to instead, e.g. a mock token server in local tests.
+     * Plain http is only allowed for it. null to send the requests to their own server.
+     */
+    public TokenConnectionBuilder(ResourceHttpClient httpClient, int connectTimeout, int readTimeout, String serverOverride) {
+        this.httpClient = httpClient;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.serverOverride = serverOverride;
+    }
+
+    @Override
+    public HttpURLConnection openConnection(Uri uri) throws IOException {
+        String url = uri.toString();
+        if (serverOverride != null) {
+            url = redirect(url, serverOverride);
+        } else if (!"https".equals(uri.getScheme())) {
+            throw new IOException("only https connections are permitted");
+        }
+        HttpURLConnection conn = this.httpClient.openConnection(url, connectTimeout, readTimeout);
+        // like AppAuth, a redirect of the token endpoint is not followed
+        conn.setInstanceFollowRedirects(false);
+        return conn;
+    }
+
+    /**
+     * @return the url with the scheme, host and port of the server, path and query are kept
+     */
+    static String redirect(String url, String server) throws IOException {
+        try {
+            URI original = new URI(url);
+            URI target = new URI(server);
+            if (target.getScheme() == null || target.getRawAuthority() == null) {
+                throw new IOException("Invalid server " + server);
+            }
+            // the raw parts keep the encoding of the original
+            StringBuilder sb = new StringBuilder(target.getScheme()).append("://").append(target.getRawAuthority());
+            if (original.getRawPath() != null) {
+                sb.append(original.getRawPath());
+            }
+            if (original.getRawQuery() != null) {
+                sb.append('?').append(original.getRawQuery());
+            }
+            return sb.toString();
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid url " + url + " or server " + server, e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes access tokens in the background before they expire.
+ * The refresh is due after the given fraction of the token lifetime plus/minus a random jitter,
+ * so that many devices logged in at the same time do not hit the token endpoint in lockstep.
+ */
+public class TokenRefreshScheduler {
+
+    public interface RefreshAction {
+        void refresh(String key);
+    }
+
+    private final ScheduledExecutorService executor;
+    private final RefreshAction refreshAction;
+    private final double lifetimeFraction;
+    private final double jitterFraction;
+    private final Map<String, ScheduledToken> scheduledTokens = new HashMap<>();
+
+    public TokenRefreshScheduler(RefreshAction refreshAction, double lifetimeFraction, double jitterFraction) {
+        this(Executors.newSingleThreadScheduledExecutor(), refreshAction, lifetimeFraction, jitterFraction);
+    }
+
+    TokenRefreshScheduler(ScheduledExecutorService executor, RefreshAction refreshAction, double lifetimeFraction, double jitterFraction) {
+        this.executor = executor;
+        this.refreshAction = refreshAction;
+        this.lifetimeFraction = lifetimeFraction;
+        this.jitterFraction = jitterFraction;
+    }
+
+    /**
+     * (Re-)arms the refresh for the given key.
+     * @param accessTokenIssuedAt when the token was received, e.g. before the app was restarted, or 0 if unknown.
+     * An unknown one is treated as issued now when seen for the first time, re-arming the same token keeps that lifetime.
+     */
+    public synchronized void schedule(String key, long accessTokenIssuedAt, Long accessTokenExpirationTime) {
+        ScheduledToken previous = scheduledTokens.remove(key);
+        if (previous != null) {
+            previous.future.cancel(false);
+        }
+        if (accessTokenExpirationTime == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long issuedAt = now;
+        if (accessTokenIssuedAt > 0 && accessTokenIssuedAt <= now) {
+            issuedAt = accessTokenIssuedAt;
+        } else if (previous != null && previous.expirationTime == accessTokenExpirationTime) {
+            issuedAt = previous.issuedAt;
+        }
+        long delay = computeDelay(now, issuedAt, accessTokenExpirationTime, lifetimeFraction, jitterFraction, ThreadLocalRandom.current());
+        ScheduledFuture<?> future = executor.schedule(() -> refresh(key), delay, TimeUnit.MILLISECONDS);
+        scheduledTokens.put(key, new ScheduledToken(issuedAt, accessTokenExpirationTime, future));
+    }
+
+    public synchronized void cancel(String key) {
+        ScheduledToken scheduled = scheduledTokens.remove(key);
+        if (scheduled != null) {
+            scheduled.future.cancel(false);
+        }
+    }
+
+    public synchronized void shutdown() {
+        scheduledTokens.clear();
+        executor.shutdownNow();
+    }
+
+    private void refresh(String key) {
+        synchronized (this) {
+            ScheduledToken scheduled = scheduledTokens.get(key);
+            if (scheduled == null || scheduled.future.isCancelled()) {
+                return;
+            }
+        }
+        refreshAction.refresh(key);
+    }
+
+    static long computeDelay(long now, long issuedAt, long expirationTime, double lifetimeFraction, double jitterFraction, Random random) {
+        long lifetime = expirationTime - issuedAt;
+        if (lifetime <= 0 || expirationTime <= now) {
+            return 0;
+        }
+        double jitter = (random.nextDouble() * 2 - 1) * jitterFraction * lifetime;
+        long refreshAt = issuedAt + (long) (lifetime * lifetimeFraction + jitter);
+        // stay inside the lifetime even with a big jitter
+        refreshAt = Math.max(issuedAt, Math.min(refreshAt, expirationTime));
+        return Math.max(0, refreshAt - now);
+    }
+
+    private static class ScheduledToken {
+
+        private final long issuedAt;
+        private final long expirationTime;
+        private final ScheduledFuture<?> future;
+
+        private ScheduledToken(long issuedAt, long expirationTime, ScheduledFuture<?> future) {
+            this.issuedAt = issuedAt;
+            this.expirationTime = expirationTime;
+            this.future = future;
+        }
+    }
+}
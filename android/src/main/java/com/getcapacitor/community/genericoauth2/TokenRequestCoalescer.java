@@ -0,0 +1,70 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import net.openid.appauth.AuthorizationException;
+import net.openid.appauth.AuthorizationService.TokenResponseCallback;
+import net.openid.appauth.TokenResponse;
+
+/**
+ * Merges concurrent token requests with the same key into one in-flight request.
+ * Providers rotating refresh tokens would otherwise invalidate all but one of the parallel requests.
+ */
+public class TokenRequestCoalescer {
+
+    public interface TokenRequestExecutor {
+        void execute(TokenResponseCallback callback);
+    }
+
+    private final Map<String, List<TokenResponseCallback>> inFlight = new HashMap<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    public static String refreshKey(String appId, String accessTokenEndpoint, String refreshToken) {
+        return appId + '\n' + accessTokenEndpoint + '\n' + refreshToken;
+    }
+
+    /**
+     * @return true if the request was executed, false if the callback joined an in-flight request
+     */
+    public boolean execute(String key, TokenResponseCallback callback, TokenRequestExecutor executor) {
+        synchronized (this) {
+            List<TokenResponseCallback> waiting = inFlight.get(key);
+            if (waiting != null) {
+                waiting.add(callback);
+                coalescedCount.incrementAndGet();
+                return false;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlight.put(key, waiting);
+        }
+        try {
+            executor.execute((response, ex) -> complete(key, response, ex));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                inFlight.remove(key);
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private void complete(String key, TokenResponse response, AuthorizationException ex) {
+        List<TokenResponseCallback> callbacks;
+        synchronized (this) {
+            callbacks = inFlight.remove(key);
+        }
+        if (callbacks != null) {
+            for (TokenResponseCallback callback : callbacks) {
+                callback.onTokenRequestCompleted(response, ex);
+            }
+        }
+    }
+}
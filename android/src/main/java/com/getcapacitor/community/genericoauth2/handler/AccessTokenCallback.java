@@ -3,6 +3,14 @@ package com.getcapacitor.community.genericoauth2.handler;
 public interface AccessTokenCallback {
     void onSuccess(String accessToken);
 
+    /**
+     * Passes expiration time, refresh token, id token and scope along with the access token, so the plugin keeps them
+     * in the session instead of asking the handler again. By default only the access token is passed on.
+     */
+    default void onSuccess(AccessTokenResponse response) {
+        onSuccess(response.getAccessToken());
+    }
+
     void onCancel();
 
     void onError(Exception error);
@@ -0,0 +1,62 @@
+package com.getcapacitor.community.genericoauth2.handler;
+
+/**
+ * The tokens a custom handler got from the provider's SDK. The plugin keeps them in the session like tokens of the
+ * authorization flow, so getAccessToken and request use them until they expire.
+ */
+public class AccessTokenResponse {
+
+    private final String accessToken;
+    // milliseconds since epoch like AppAuth, null if unknown
+    private Long accessTokenExpirationTime;
+    private String refreshToken;
+    private String idToken;
+    // space separated
+    private String scope;
+
+    public AccessTokenResponse(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public Long getAccessTokenExpirationTime() {
+        return accessTokenExpirationTime;
+    }
+
+    /**
+     * A token without expiration time is returned by getAccessToken until the next authenticate or logout.
+     */
+    public void setAccessTokenExpirationTime(Long accessTokenExpirationTime) {
+        this.accessTokenExpirationTime = accessTokenExpirationTime;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    /**
+     * Only used by the plugin with an accessTokenEndpoint to refresh at.
+     */
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public String getIdToken() {
+        return idToken;
+    }
+
+    public void setIdToken(String idToken) {
+        this.idToken = idToken;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+}
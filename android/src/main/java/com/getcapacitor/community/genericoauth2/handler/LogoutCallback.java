@@ -0,0 +1,10 @@
+package com.getcapacitor.community.genericoauth2.handler;
+
+public interface LogoutCallback {
+    void onSuccess();
+
+    /**
+     * @param error the cause, null if there is none
+     */
+    void onError(Exception error);
+}
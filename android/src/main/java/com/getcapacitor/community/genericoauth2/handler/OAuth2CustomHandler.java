@@ -6,5 +6,20 @@ import com.getcapacitor.PluginCall;
 public interface OAuth2CustomHandler {
     void getAccessToken(Activity activity, PluginCall pluginCall, final AccessTokenCallback callback);
 
+    /**
+     * Blocks the plugin until the logout is done. Not called if {@link #logout(Activity, PluginCall, LogoutCallback)} is overridden.
+     */
     boolean logout(Activity activity, PluginCall pluginCall);
+
+    /**
+     * Override it to log out without blocking, e.g. while a session is revoked on the server. The callback may be called on
+     * any thread. By default the result of {@link #logout(Activity, PluginCall)} is passed to the callback.
+     */
+    default void logout(Activity activity, PluginCall pluginCall, final LogoutCallback callback) {
+        if (logout(activity, pluginCall)) {
+            callback.onSuccess();
+        } else {
+            callback.onError(null);
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package com.getcapacitor.community.genericoauth2;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerRegistryTest {
+
+    private static final String ENDPOINT = "https://example.com/token";
+
+    @Test
+    public void opensAfterConsecutiveFailures() throws Exception {
+        CircuitBreakerRegistry breakers = new CircuitBreakerRegistry(3, 1000);
+        for (int i = 0; i < 2; i++) {
+            breakers.acquire(ENDPOINT, 0);
+            breakers.recordFailure(ENDPOINT, 0);
+        }
+        Assertions.assertEquals(CircuitBreakerRegistry.State.CLOSED, breakers.getState(ENDPOINT, 0));
+        breakers.acquire(ENDPOINT, 0);
+        breakers.recordFailure(ENDPOINT, 0);
+        Assertions.assertEquals(CircuitBreakerRegistry.State.OPEN, breakers.getState(ENDPOINT, 0));
+        Assertions.assertThrows(CircuitBreakerRegistry.OpenException.class, () -> breakers.acquire(ENDPOINT, 999));
+        // other endpoints are not affected
+        breakers.acquire("https://example.com/userinfo", 0);
+    }
+
+    @Test
+    public void successResetsFailures() throws Exception {
+        CircuitBreakerRegistry breakers = new CircuitBreakerRegistry(2, 1000);
+        breakers.recordFailure(ENDPOINT, 0);
+        breakers.recordSuccess(ENDPOINT);
+        breakers.recordFailure(ENDPOINT, 0);
+        Assertions.assertEquals(CircuitBreakerRegistry.State.CLOSED, breakers.getState(ENDPOINT, 0));
+    }
+
+    @Test
+    public void halfOpenLetsOneTrialThrough() throws Exception {
+        CircuitBreakerRegistry breakers = new CircuitBreakerRegistry(1, 1000);
+        breakers.recordFailure(ENDPOINT, 0);
+        Assertions.assertEquals(CircuitBreakerRegistry.State.HALF_OPEN, breakers.getState(ENDPOINT, 1000));
+        breakers.acquire(ENDPOINT, 1000);
+        Assertions.assertThrows(CircuitBreakerRegistry.OpenException.class, () -> breakers.acquire(ENDPOINT, 1000));
+
+        // a failed trial reopens it for the full duration
+        breakers.recordFailure(ENDPOINT, 1000);
+        Assertions.assertThrows(CircuitBreakerRegistry.OpenException.class, () -> breakers.acquire(ENDPOINT, 1999));
+
+        breakers.acquire(ENDPOINT, 2000);
+        breakers.recordSuccess(ENDPOINT);
+        Assertions.assertEquals(CircuitBreakerRegistry.State.CLOSED, breakers.getState(ENDPOINT, 2000));
+        breakers.acquire(ENDPOINT, 2000);
+        breakers.acquire(ENDPOINT, 2000);
+    }
+
+    @Test
+    public void trialWithoutResultIsGivenUp() throws Exception {
+        CircuitBreakerRegistry breakers = new CircuitBreakerRegistry(1, 1000);
+        breakers.recordFailure(ENDPOINT, 0);
+        breakers.acquire(ENDPOINT, 1000);
+        long timeout = 1000 + CircuitBreakerRegistry.TRIAL_TIMEOUT;
+        Assertions.assertThrows(CircuitBreakerRegistry.OpenException.class, () -> breakers.acquire(ENDPOINT, timeout - 1));
+        // the next trial is let through
+        breakers.acquire(ENDPOINT, timeout);
+        Assertions.assertThrows(CircuitBreakerRegistry.OpenException.class, () -> breakers.acquire(ENDPOINT, timeout));
+    }
+
+    @Test
+    public void disabledWithoutThreshold() throws Exception {
+        CircuitBreakerRegistry breakers = new CircuitBreakerRegistry(0, 1000);
+        for (int i = 0; i < 10; i++) {
+            breakers.recordFailure(ENDPOINT, 0);
+            breakers.acquire(ENDPOINT, 0);
+        }
+    }
+
+    @Test
+    public void endpointIgnoresQueryAndFragment() {
+        Assertions.assertEquals(ENDPOINT, CircuitBreakerRegistry.endpointOf(ENDPOINT));
+        Assertions.assertEquals(ENDPOINT, CircuitBreakerRegistry.endpointOf(ENDPOINT + "?a=b#c"));
+        Assertions.assertEquals(ENDPOINT, CircuitBreakerRegistry.endpointOf(ENDPOINT + "#c?d"));
+    }
+}
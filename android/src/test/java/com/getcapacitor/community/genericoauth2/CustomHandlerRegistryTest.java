@@ -0,0 +1,74 @@
+package com.getcapacitor.community.genericoauth2;
+
+import android.app.Activity;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.community.genericoauth2.handler.AccessTokenCallback;
+import com.getcapacitor.community.genericoauth2.handler.OAuth2CustomHandler;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CustomHandlerRegistryTest {
+
+    public static class CountingHandler implements OAuth2CustomHandler {
+
+        static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        public CountingHandler() {
+            INSTANCES.incrementAndGet();
+        }
+
+        @Override
+        public void getAccessToken(Activity activity, PluginCall pluginCall, AccessTokenCallback callback) {}
+
+        @Override
+        public boolean logout(Activity activity, PluginCall pluginCall) {
+            return true;
+        }
+    }
+
+    public static class FailingHandler implements OAuth2CustomHandler {
+
+        public FailingHandler() {
+            throw new IllegalStateException("SDK not available");
+        }
+
+        @Override
+        public void getAccessToken(Activity activity, PluginCall pluginCall, AccessTokenCallback callback) {}
+
+        @Override
+        public boolean logout(Activity activity, PluginCall pluginCall) {
+            return true;
+        }
+    }
+
+    @Test
+    public void instantiatesOnce() throws Exception {
+        CustomHandlerRegistry registry = new CustomHandlerRegistry();
+        int instances = CountingHandler.INSTANCES.get();
+        OAuth2CustomHandler handler = registry.get(CountingHandler.class.getName());
+        Assertions.assertSame(handler, registry.get(CountingHandler.class.getName()));
+        Assertions.assertEquals(instances + 1, CountingHandler.INSTANCES.get());
+    }
+
+    @Test
+    public void preloadReportsFailures() throws Exception {
+        CustomHandlerRegistry registry = new CustomHandlerRegistry();
+        int instances = CountingHandler.INSTANCES.get();
+        Map<String, Throwable> failures = registry.preload(
+            new String[] { CountingHandler.class.getName(), " ", "com.example.Missing", FailingHandler.class.getName(), String.class.getName() }
+        );
+        Assertions.assertEquals(instances + 1, CountingHandler.INSTANCES.get());
+        Assertions.assertEquals(3, failures.size());
+        Assertions.assertTrue(failures.get("com.example.Missing") instanceof ClassNotFoundException);
+        Assertions.assertTrue(failures.get(FailingHandler.class.getName()) instanceof IllegalStateException);
+        Assertions.assertTrue(failures.get(String.class.getName()) instanceof ClassCastException);
+
+        // the preloaded instance is used
+        registry.get(CountingHandler.class.getName());
+        Assertions.assertEquals(instances + 1, CountingHandler.INSTANCES.get());
+        // failures are not retried
+        Assertions.assertThrows(ClassNotFoundException.class, () -> registry.get("com.example.Missing"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DiscoveryCacheTest {
+
+    private static final long DEFAULT = DiscoveryCache.DEFAULT_MAX_AGE;
+
+    @Test
+    public void discoveryUrl() {
+        Assertions.assertEquals(
+            "https://accounts.google.com/.well-known/openid-configuration",
+            DiscoveryCache.discoveryUrl("https://accounts.google.com")
+        );
+        Assertions.assertEquals(
+            "https://login.example.com/tenant/v2.0/.well-known/openid-configuration",
+            DiscoveryCache.discoveryUrl("https://login.example.com/tenant/v2.0/")
+        );
+    }
+
+    @Test
+    public void documentOfAnotherIssuerIsRejected() {
+        String issuer = "https://accounts.example.com";
+        Assertions.assertThrows(IOException.class, () -> DiscoveryCache.parse(issuer, "{\"issuer\":\"https://evil.example.com\"}"));
+        Assertions.assertThrows(IOException.class, () -> DiscoveryCache.parse(issuer, "{\"issuer\":\"https://accounts.example.com/\"}"));
+        Assertions.assertThrows(IOException.class, () -> DiscoveryCache.parse(issuer, "{}"));
+    }
+
+    @Test
+    public void maxAgeFromCacheControl() {
+        Assertions.assertEquals(DEFAULT, DiscoveryCache.parseMaxAge(null, DEFAULT));
+        Assertions.assertEquals(DEFAULT, DiscoveryCache.parseMaxAge("public", DEFAULT));
+        Assertions.assertEquals(3600 * 1000, DiscoveryCache.parseMaxAge("public, max-age=3600", DEFAULT));
+        Assertions.assertEquals(60 * 1000, DiscoveryCache.parseMaxAge("Max-Age=60, must-revalidate", DEFAULT));
+        Assertions.assertEquals(DEFAULT, DiscoveryCache.parseMaxAge("max-age=abc", DEFAULT));
+    }
+
+    @Test
+    public void noCacheAndNoStoreAreStaleImmediately() {
+        Assertions.assertEquals(0, DiscoveryCache.parseMaxAge("no-cache", DEFAULT));
+        Assertions.assertEquals(0, DiscoveryCache.parseMaxAge("max-age=3600, no-store", DEFAULT));
+        Assertions.assertTrue(DiscoveryCache.isNoStore("private, no-store"));
+        Assertions.assertFalse(DiscoveryCache.isNoStore("no-cache"));
+        Assertions.assertFalse(DiscoveryCache.isNoStore(null));
+    }
+}
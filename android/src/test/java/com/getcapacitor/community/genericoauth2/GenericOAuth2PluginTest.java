@@ -142,6 +142,40 @@ public class GenericOAuth2PluginTest {
         Assertions.assertNotNull(options.getScope());
     }
 
+    @Test
+    public void logoutDiscardsTheCustomHandlerSessions() {
+        JSObject jsObject = loadJson(
+            "{\n" +
+            "    \"appId\": \"CLIENT_ID\",\n" +
+            "    \"android\": {\n" +
+            "        \"customHandlerClass\": \"com.company.project.FacebookOAuth2Handler\"\n" +
+            "    }\n" +
+            "}\n"
+        );
+        OAuth2Options options = plugin.buildAuthenticateOptions(jsObject);
+        // keyed like the tokens of a custom handler
+        String key = OAuth2Session.key(options.getAppId(), options.getAuthorizationBaseUrl(), "first@example.com");
+        String otherApp = OAuth2Session.key("OTHER_CLIENT_ID", null, "first@example.com");
+        OAuth2Session session = plugin.getSessionRegistry().getOrCreate(key);
+        plugin.getSessionRegistry().getOrCreate(otherApp);
+
+        plugin.discardLogoutSessions(options);
+
+        Assertions.assertTrue(session.isDiscarded());
+        Assertions.assertNull(plugin.getSessionRegistry().get(key));
+        Assertions.assertNotNull(plugin.getSessionRegistry().get(otherApp));
+    }
+
+    @Test
+    public void logoutWithoutAppIdDiscardsNothing() {
+        OAuth2Session session = plugin.getSessionRegistry().getOrCreate(OAuth2Session.key("CLIENT_ID", null, null));
+        OAuth2Options options = plugin.buildAuthenticateOptions(loadJson("{\"appId\": \" \"}"));
+
+        Assertions.assertFalse(plugin.discardLogoutSessions(options));
+        Assertions.assertFalse(session.isDiscarded());
+        Assertions.assertSame(session, plugin.getSessionRegistry().get(OAuth2Session.key("CLIENT_ID", null, null)));
+    }
+
     private JSObject loadJson(String json) {
         try {
             return new JSObject(json);
@@ -0,0 +1,212 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class IdTokenValidatorTest {
+
+    private static final String ISSUER = "https://accounts.example.com";
+    private static final String JWKS_URI = ISSUER + "/jwks";
+    private static final String CLIENT_ID = "appId";
+    private static final long NOW = 1700000000000L;
+
+    private static KeyPair rsaKeyPair;
+    private static KeyPair ecKeyPair;
+
+    @BeforeAll
+    public static void generateKeys() throws Exception {
+        KeyPairGenerator rsa = KeyPairGenerator.getInstance("RSA");
+        rsa.initialize(2048);
+        rsaKeyPair = rsa.generateKeyPair();
+        KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+        ec.initialize(new ECGenParameterSpec("secp256r1"));
+        ecKeyPair = ec.generateKeyPair();
+    }
+
+    @Test
+    public void decodesBase64Url() {
+        for (int length = 0; length < 8; length++) {
+            byte[] value = new byte[length];
+            for (int i = 0; i < length; i++) {
+                value[i] = (byte) (0xF0 + i * 3);
+            }
+            Assertions.assertArrayEquals(value, JwksCache.decodeBase64Url(Base64.getUrlEncoder().withoutPadding().encodeToString(value)));
+            Assertions.assertArrayEquals(value, JwksCache.decodeBase64Url(Base64.getUrlEncoder().encodeToString(value)));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> JwksCache.decodeBase64Url("a+b/"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> JwksCache.decodeBase64Url("abcde"));
+    }
+
+    @Test
+    public void validRsaToken() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        IdTokenValidator validator = validator(fetches);
+        String token = sign("RS256", "rsa", claims());
+        validator.validate(token, ISSUER, JWKS_URI, CLIENT_ID, "nonce", NOW);
+        validator.validate(token, ISSUER, JWKS_URI, CLIENT_ID, "nonce", NOW + 1000);
+        // the parsed keys are reused
+        Assertions.assertEquals(1, fetches.get());
+    }
+
+    @Test
+    public void validEcToken() throws Exception {
+        validator(new AtomicInteger()).validate(sign("ES256", "ec", claims()), ISSUER, JWKS_URI, CLIENT_ID, "nonce", NOW);
+    }
+
+    @Test
+    public void tamperedTokenIsRejected() throws Exception {
+        String[] parts = sign("RS256", "rsa", claims()).split("\\.");
+        JSONObject otherClaims = claims().put("sub", "someone else");
+        String tampered = parts[0] + "." + encode(otherClaims.toString().getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+        IdTokenValidator validator = validator(new AtomicInteger());
+        Assertions.assertThrows(
+            GeneralSecurityException.class,
+            () -> validator.validate(tampered, ISSUER, JWKS_URI, CLIENT_ID, "nonce", NOW)
+        );
+    }
+
+    @Test
+    public void claimsAreChecked() throws Exception {
+        IdTokenValidator validator = validator(new AtomicInteger());
+        String token = sign("RS256", "rsa", claims());
+        Assertions.assertThrows(
+            GeneralSecurityException.class,
+            () -> validator.validate(token, ISSUER, JWKS_URI, "otherAppId", "nonce", NOW)
+        );
+        Assertions.assertThrows(
+            GeneralSecurityException.class,
+            () -> validator.validate(token, "https://evil.example.com", JWKS_URI, CLIENT_ID, "nonce", NOW)
+        );
+        Assertions.assertThrows(
+            GeneralSecurityException.class,
+            () -> validator.validate(token, ISSUER, JWKS_URI, CLIENT_ID, "otherNonce", NOW)
+        );
+        Assertions.assertThrows(
+            GeneralSecurityException.class,
+            () -> validator.validate(token, ISSUER, JWKS_URI, CLIENT_ID, "nonce", NOW + 2 * 60 * 60 * 1000)
+        );
+    }
+
+    @Test
+    public void unsignedTokenIsRejected() throws Exception {
+        String header = encode("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = encode(claims().toString().getBytes(StandardCharsets.UTF_8));
+        IdTokenValidator validator = validator(new AtomicInteger());
+        Assertions.assertThrows(
+            GeneralSecurityException.class,
+            () -> validator.validate(header + "." + payload + ".", ISSUER, JWKS_URI, CLIENT_ID, null, NOW)
+        );
+    }
+
+    @Test
+    public void unknownKidIsRefetchedOnce() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        IdTokenValidator validator = validator(fetches);
+        validator.validate(sign("RS256", "rsa", claims()), ISSUER, JWKS_URI, CLIENT_ID, "nonce", NOW);
+        String rotated = sign("RS256", "rotated", claims());
+        Assertions.assertThrows(
+            GeneralSecurityException.class,
+            () -> validator.validate(rotated, ISSUER, JWKS_URI, CLIENT_ID, "nonce", NOW + JwksCache.MIN_REFETCH_INTERVAL)
+        );
+        Assertions.assertEquals(2, fetches.get());
+        // the key set was just refetched, an unknown kid does not fetch it again
+        Assertions.assertThrows(
+            GeneralSecurityException.class,
+            () -> validator.validate(rotated, ISSUER, JWKS_URI, CLIENT_ID, "nonce", NOW + JwksCache.MIN_REFETCH_INTERVAL + 1000)
+        );
+        Assertions.assertEquals(2, fetches.get());
+    }
+
+    private static IdTokenValidator validator(AtomicInteger fetches) throws Exception {
+        String jwks = jwks();
+        JwksCache jwksCache = new JwksCache(
+            (String uri) -> {
+                fetches.incrementAndGet();
+                return jwks;
+            }
+        );
+        return new IdTokenValidator(null, jwksCache);
+    }
+
+    private static JSONObject claims() throws Exception {
+        return new JSONObject()
+            .put("iss", ISSUER)
+            .put("aud", new JSONArray().put(CLIENT_ID))
+            .put("sub", "user")
+            .put("nonce", "nonce")
+            .put("iat", NOW / 1000)
+            .put("exp", NOW / 1000 + 3600);
+    }
+
+    private static String jwks() throws Exception {
+        RSAPublicKey rsa = (RSAPublicKey) rsaKeyPair.getPublic();
+        ECPublicKey ec = (ECPublicKey) ecKeyPair.getPublic();
+        JSONArray keys = new JSONArray()
+            .put(
+                new JSONObject()
+                    .put("kty", "RSA")
+                    .put("kid", "rsa")
+                    .put("use", "sig")
+                    .put("n", encode(unsigned(rsa.getModulus().toByteArray())))
+                    .put("e", encode(unsigned(rsa.getPublicExponent().toByteArray())))
+            )
+            .put(
+                new JSONObject()
+                    .put("kty", "EC")
+                    .put("kid", "ec")
+                    .put("crv", "P-256")
+                    .put("x", encode(unsigned(ec.getW().getAffineX().toByteArray())))
+                    .put("y", encode(unsigned(ec.getW().getAffineY().toByteArray())))
+            );
+        return new JSONObject().put("keys", keys).toString();
+    }
+
+    private static String sign(String alg, String kid, JSONObject claims) throws Exception {
+        String header = encode(new JSONObject().put("alg", alg).put("kid", kid).toString().getBytes(StandardCharsets.UTF_8));
+        String payload = encode(claims.toString().getBytes(StandardCharsets.UTF_8));
+        boolean ec = alg.startsWith("ES");
+        Signature signature = Signature.getInstance(ec ? "SHA256withECDSA" : "SHA256withRSA");
+        signature.initSign(ec ? ecKeyPair.getPrivate() : rsaKeyPair.getPrivate());
+        signature.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+        byte[] signed = signature.sign();
+        return header + "." + payload + "." + encode(ec ? toJwsSignature(signed) : signed);
+    }
+
+    // DER to r and s concatenated, each 32 bytes for P-256
+    private static byte[] toJwsSignature(byte[] der) {
+        int offset = der[1] < 0 ? 3 : 2;
+        byte[] jws = new byte[64];
+        int rLength = der[offset + 1];
+        copyInteger(der, offset + 2, rLength, jws, 0);
+        int sOffset = offset + 2 + rLength;
+        copyInteger(der, sOffset + 2, der[sOffset + 1], jws, 32);
+        return jws;
+    }
+
+    private static void copyInteger(byte[] der, int start, int length, byte[] target, int targetOffset) {
+        byte[] value = unsigned(Arrays.copyOfRange(der, start, start + length));
+        System.arraycopy(value, 0, target, targetOffset + 32 - value.length, value.length);
+    }
+
+    private static byte[] unsigned(byte[] value) {
+        return value.length > 1 && value[0] == 0 ? Arrays.copyOfRange(value, 1, value.length) : value;
+    }
+
+    private static String encode(byte[] value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+    }
+}
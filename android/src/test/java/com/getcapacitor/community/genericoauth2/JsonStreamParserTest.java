@@ -0,0 +1,106 @@
+package com.getcapacitor.community.genericoauth2;
+
+import com.getcapacitor.JSObject;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JsonStreamParserTest {
+
+    @Test
+    public void parsesNestedValues() throws Exception {
+        String json = "{\"name\":\"J\u00fcrgen\",\"age\":42,\"id\":12345678901,\"score\":1.5,\"admin\":false,\"avatar\":null," +
+            "\"address\":{\"city\":\"Wien\"},\"roles\":[\"a\",{\"b\":1},[]]}";
+        JSObject result = JsonStreamParser.parseObject(stream(json, "UTF-8"), "application/json");
+
+        Assertions.assertEquals("J\u00fcrgen", result.getString("name"));
+        Assertions.assertEquals(42, result.get("age"));
+        Assertions.assertEquals(12345678901L, result.get("id"));
+        Assertions.assertEquals(1.5, result.getDouble("score"));
+        Assertions.assertFalse(result.getBoolean("admin"));
+        Assertions.assertEquals(JSONObject.NULL, result.get("avatar"));
+        Assertions.assertEquals("Wien", result.getJSONObject("address").getString("city"));
+        Assertions.assertEquals(3, result.getJSONArray("roles").length());
+        Assertions.assertEquals(1, result.getJSONArray("roles").getJSONObject(1).getInt("b"));
+    }
+
+    @Test
+    public void parsesEscapesAndWhitespace() throws Exception {
+        String json = " {\n\t\"text\" : \"a\\\"b\\\\c\\/\\n\\u00fc\" , \"e\":[ -1.5e3 , true ] }\r\n";
+        JSObject result = JsonStreamParser.parseObject(stream(json, "UTF-8"), null);
+        Assertions.assertEquals("a\"b\\c/\n\u00fc", result.getString("text"));
+        Assertions.assertEquals(-1500.0, result.getJSONArray("e").getDouble(0));
+        Assertions.assertTrue(result.getJSONArray("e").getBoolean(1));
+    }
+
+    @Test
+    public void rejectsMalformedJson() {
+        String[] malformed = { "", "{", "{\"a\"}", "{\"a\":1,}", "{a:1}", "{\"a\":01}", "{\"a\":tru}", "{\"a\":\"\\x\"}", "{\"a\":[1 2]}" };
+        for (String json : malformed) {
+            Assertions.assertThrows(JSONException.class, () -> JsonStreamParser.parseObject(stream(json, "UTF-8"), null), json);
+        }
+    }
+
+    @Test
+    public void usesTheCharsetOfTheContentType() throws Exception {
+        String json = "{\"name\":\"J\u00fcrgen\"}";
+        JSObject result = JsonStreamParser.parseObject(stream(json, "ISO-8859-1"), "application/json; charset=\"ISO-8859-1\"");
+        Assertions.assertEquals("J\u00fcrgen", result.getString("name"));
+    }
+
+    @Test
+    public void charsetDefaultsToUtf8() {
+        Assertions.assertEquals(StandardCharsets.UTF_8, JsonStreamParser.charsetOf(null));
+        Assertions.assertEquals(StandardCharsets.UTF_8, JsonStreamParser.charsetOf("application/json"));
+        Assertions.assertEquals(StandardCharsets.UTF_8, JsonStreamParser.charsetOf("application/json; charset=unknown-42"));
+        Assertions.assertEquals(StandardCharsets.UTF_16BE, JsonStreamParser.charsetOf("application/json;Charset=UTF-16BE"));
+    }
+
+    @Test
+    public void acceptsOnlyASingleObject() {
+        Assertions.assertThrows(JSONException.class, () -> JsonStreamParser.parseObject(stream("{\"a\":1} {}", "UTF-8"), null));
+        Assertions.assertThrows(JSONException.class, () -> JsonStreamParser.parseObject(stream("[1,2]", "UTF-8"), null));
+    }
+
+    @Test
+    public void parsesAnyTopLevelValue() throws Exception {
+        Object array = JsonStreamParser.parseValue(stream("[1,{\"a\":\"b\"}]", "UTF-8"), "application/json");
+        Assertions.assertEquals(2, ((JSONArray) array).length());
+        Assertions.assertEquals("b", ((JSONArray) array).getJSONObject(1).getString("a"));
+        Assertions.assertEquals("text", JsonStreamParser.parseValue(stream("\"text\"", "UTF-8"), null));
+        Assertions.assertEquals(42, JsonStreamParser.parseValue(stream("42", "UTF-8"), null));
+        Assertions.assertEquals(JSONObject.NULL, JsonStreamParser.parseValue(stream("null", "UTF-8"), null));
+        Assertions.assertThrows(JSONException.class, () -> JsonStreamParser.parseValue(stream("[1] [2]", "UTF-8"), null));
+    }
+
+    @Test
+    public void failsAsSoonAsTheLimitIsExceeded() {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < 10000; i++) {
+            json.append(i).append(',');
+        }
+        json.append("0]}");
+        CountingInputStream in = new CountingInputStream(stream(json.toString(), "UTF-8"), 1024);
+
+        Assertions.assertThrows(CountingInputStream.LimitExceededException.class, () -> JsonStreamParser.parseObject(in, null));
+        Assertions.assertTrue(in.getCount() < json.length());
+    }
+
+    @Test
+    public void countsWithinTheLimit() throws Exception {
+        String json = "{\"a\":1}";
+        CountingInputStream in = new CountingInputStream(stream(json, "UTF-8"), json.length());
+        Assertions.assertEquals(1, JsonStreamParser.parseObject(in, null).getInt("a"));
+        Assertions.assertEquals(json.length(), in.getCount());
+    }
+
+    private static InputStream stream(String value, String charset) {
+        return new ByteArrayInputStream(value.getBytes(Charset.forName(charset)));
+    }
+}
@@ -0,0 +1,80 @@
+package com.getcapacitor.community.genericoauth2;
+
+import com.getcapacitor.JSObject;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LatencyRecorderTest {
+
+    @Test
+    public void disabledRecorderSharesOneTrace() throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder(false);
+        LatencyRecorder.Trace trace = recorder.start(0);
+        Assertions.assertSame(trace, recorder.start(100));
+        Assertions.assertFalse(trace.isRecording());
+        trace.mark(LatencyRecorder.Phase.AUTHENTICATE_LAUNCH, 10);
+        trace.finish(LatencyRecorder.Phase.AUTHENTICATE_TOTAL, 20);
+        JSObject result = new JSObject();
+        trace.attachTo(result);
+        Assertions.assertFalse(result.has("latency"));
+        Assertions.assertEquals(0, recorder.getCount(LatencyRecorder.Phase.AUTHENTICATE_TOTAL));
+        Assertions.assertEquals(0, recorder.toJSObject().getJSONArray("phases").length());
+    }
+
+    @Test
+    public void recordsPhasesSincePreviousMark() throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder(true);
+        LatencyRecorder.Trace trace = recorder.start(1000);
+        trace.mark(LatencyRecorder.Phase.AUTHENTICATE_LAUNCH, 1080);
+        trace.mark(LatencyRecorder.Phase.AUTHENTICATE_INTERACTION, 6480);
+        trace.mark(LatencyRecorder.Phase.AUTHENTICATE_TOKEN_EXCHANGE, 6780);
+        trace.finish(LatencyRecorder.Phase.AUTHENTICATE_TOTAL, 6800);
+
+        JSONObject latency = trace.attachTo(new JSObject()).getJSONObject("latency");
+        Assertions.assertEquals(80, latency.getLong("launch"));
+        Assertions.assertEquals(5400, latency.getLong("interaction"));
+        Assertions.assertEquals(300, latency.getLong("token_exchange"));
+        Assertions.assertEquals(5800, latency.getLong("total"));
+        Assertions.assertFalse(latency.has("resource"));
+        Assertions.assertEquals(1, recorder.getCount(LatencyRecorder.Phase.AUTHENTICATE_TOTAL));
+        Assertions.assertEquals(0, recorder.getCount(LatencyRecorder.Phase.LOGOUT_TOTAL));
+    }
+
+    @Test
+    public void attachToNullIsIgnored() {
+        LatencyRecorder.Trace trace = new LatencyRecorder(true).start(0);
+        trace.finish(LatencyRecorder.Phase.AUTHENTICATE_TOTAL, 10);
+        Assertions.assertNull(trace.attachTo(null));
+        Assertions.assertNull(LatencyRecorder.Trace.NONE.attachTo(null));
+    }
+
+    @Test
+    public void histogramCountsPerBucket() throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder(true);
+        for (long duration : new long[] { 5, 10, 11, 70000 }) {
+            recorder.start(0).finish(LatencyRecorder.Phase.REFRESH_TOKEN_TOTAL, duration);
+        }
+        JSONObject metrics = recorder.toJSObject();
+        Assertions.assertTrue(metrics.getBoolean("enabled"));
+        Assertions.assertEquals(LatencyRecorder.BUCKET_BOUNDS.length, metrics.getJSONArray("bounds").length());
+        JSONArray phases = metrics.getJSONArray("phases");
+        JSONObject refresh = null;
+        for (int i = 0; i < phases.length(); i++) {
+            JSONObject phase = phases.getJSONObject(i);
+            if ("refreshToken".equals(phase.getString("operation")) && "total".equals(phase.getString("phase"))) {
+                refresh = phase;
+            }
+        }
+        Assertions.assertNotNull(refresh);
+        Assertions.assertEquals(4, refresh.getLong("count"));
+        Assertions.assertEquals(70026, refresh.getLong("sum"));
+        Assertions.assertEquals(70000, refresh.getLong("max"));
+        JSONArray counts = refresh.getJSONArray("counts");
+        Assertions.assertEquals(LatencyRecorder.BUCKET_BOUNDS.length + 1, counts.length());
+        Assertions.assertEquals(2, counts.getLong(0));
+        Assertions.assertEquals(1, counts.getLong(1));
+        Assertions.assertEquals(1, counts.getLong(counts.length() - 1));
+    }
+}
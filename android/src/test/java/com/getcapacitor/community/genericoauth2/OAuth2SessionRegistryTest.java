@@ -0,0 +1,98 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.openid.appauth.AuthState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class OAuth2SessionRegistryTest {
+
+    private static final String BASE_URL = "https://accounts.google.com/o/oauth2/auth";
+
+    @Test
+    public void sessionsAreKeyedByAccount() {
+        OAuth2SessionRegistry registry = new OAuth2SessionRegistry(10, null);
+        OAuth2Session first = registry.getOrCreate(OAuth2Session.key("appId", BASE_URL, "first@example.com"));
+        OAuth2Session second = registry.getOrCreate(OAuth2Session.key("appId", BASE_URL, "second@example.com"));
+        Assertions.assertNotSame(first, second);
+        Assertions.assertSame(first, registry.get(OAuth2Session.key("appId", BASE_URL, "first@example.com")));
+        Assertions.assertEquals("appId", second.getAppId());
+    }
+
+    @Test
+    public void logoutScopeOfSessionKeys() {
+        String account = OAuth2Session.key("appId", BASE_URL, "first@example.com");
+        String otherAccount = OAuth2Session.key("appId", BASE_URL, "second@example.com");
+        String refreshOnly = OAuth2Session.key("appId", null, null);
+        String otherApp = OAuth2Session.key("otherAppId", BASE_URL, "first@example.com");
+
+        Assertions.assertTrue(OAuth2Session.belongsTo(account, "appId", "first@example.com"));
+        Assertions.assertFalse(OAuth2Session.belongsTo(otherAccount, "appId", "first@example.com"));
+        Assertions.assertFalse(OAuth2Session.belongsTo(refreshOnly, "appId", "first@example.com"));
+        // without account hint every session of the app
+        Assertions.assertTrue(OAuth2Session.belongsTo(account, "appId", null));
+        Assertions.assertTrue(OAuth2Session.belongsTo(otherAccount, "appId", null));
+        Assertions.assertTrue(OAuth2Session.belongsTo(refreshOnly, "appId", null));
+        Assertions.assertFalse(OAuth2Session.belongsTo(otherApp, "appId", null));
+        Assertions.assertFalse(OAuth2Session.belongsTo("no session key", null, null));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        List<OAuth2Session> evicted = new ArrayList<>();
+        OAuth2SessionRegistry registry = new OAuth2SessionRegistry(2, evicted::add);
+        String a = OAuth2Session.key("a", BASE_URL, null);
+        String b = OAuth2Session.key("b", BASE_URL, null);
+        String c = OAuth2Session.key("c", BASE_URL, null);
+        registry.getOrCreate(a);
+        registry.getOrCreate(b);
+        // touch a, so b is the eldest
+        registry.get(a);
+        registry.getOrCreate(c);
+
+        Assertions.assertEquals(2, registry.size());
+        Assertions.assertEquals(1, evicted.size());
+        Assertions.assertEquals(b, evicted.get(0).getKey());
+        Assertions.assertNull(registry.get(b));
+        Assertions.assertNotNull(registry.get(a));
+    }
+
+    @Test
+    public void removeDoesNotNotifyEviction() {
+        List<OAuth2Session> evicted = new ArrayList<>();
+        OAuth2SessionRegistry registry = new OAuth2SessionRegistry(2, evicted::add);
+        String key = OAuth2Session.key("appId", BASE_URL, null);
+        registry.getOrCreate(key);
+        Assertions.assertNotNull(registry.remove(key));
+        Assertions.assertEquals(0, registry.size());
+        Assertions.assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    public void storedSessionKeepsAccessTokenIssueTime() throws Exception {
+        String key = OAuth2Session.key("appId", BASE_URL, null);
+        OAuth2Session stored = OAuth2Session.deserialize(key, "{\"genericOAuth2AccessTokenIssuedAt\":1234}");
+        Assertions.assertEquals(1234, stored.getAccessTokenIssuedAt());
+        Assertions.assertEquals(1234, OAuth2Session.deserialize(key, stored.serialize()).getAccessTokenIssuedAt());
+        // stored by an older version
+        Assertions.assertEquals(0, OAuth2Session.deserialize(key, "{}").getAccessTokenIssuedAt());
+
+        OAuth2SessionRegistry registry = new OAuth2SessionRegistry(10, null);
+        Assertions.assertSame(stored, registry.putIfAbsent(stored));
+        // a session in memory is not replaced by the stored one
+        Assertions.assertSame(stored, registry.putIfAbsent(OAuth2Session.deserialize(key, "{}")));
+    }
+
+    @Test
+    public void refreshDoesNotUpdateADiscardedOrReplacedSession() {
+        OAuth2Session session = new OAuth2Session(OAuth2Session.key("appId", BASE_URL, null), new AuthState());
+        AuthState refreshed = session.getAuthState();
+        session.replaceAuthState(new AuthState());
+        Assertions.assertFalse(session.updateIfCurrent(refreshed, null, null));
+
+        AuthState current = session.getAuthState();
+        session.discard();
+        Assertions.assertFalse(session.updateIfCurrent(current, null, null));
+    }
+}
@@ -0,0 +1,113 @@
+package com.getcapacitor.community.genericoauth2;
+
+import com.getcapacitor.JSObject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.json.JSONException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class OptionsBinderTest {
+
+    private static final OptionsBinder<Map<String, Object>> BINDER = new OptionsBinder<Map<String, Object>>()
+        .string("appId", (m, v) -> m.put("appId", v))
+        .string("scope", (m, v) -> m.put("scope", v))
+        .bool("pkceEnabled", (m, v) -> m.put("pkceEnabled", v))
+        .map("additionalParameters", (m, v) -> m.put("additionalParameters", v))
+        .string("android.customHandlerClass", (m, v) -> m.put("android.customHandlerClass", v))
+        .bool("android.handleResultOnNewIntent", (m, v) -> m.put("android.handleResultOnNewIntent", v));
+
+    /**
+     * The binder must return exactly what the ConfigUtils lookups it replaces return.
+     */
+    @ParameterizedTest
+    @MethodSource("getCallData")
+    public void bindsLikeConfigUtils(String json) throws JSONException {
+        JSObject data = new JSObject(json);
+        Map<String, Object> bound = BINDER.bind(data, new HashMap<String, Object>());
+
+        Assertions.assertEquals(ConfigUtils.getOverwrittenAndroidParam(String.class, data, "appId"), bound.get("appId"));
+        Assertions.assertEquals(ConfigUtils.getOverwrittenAndroidParam(String.class, data, "scope"), bound.get("scope"));
+        Assertions.assertEquals(ConfigUtils.getOverwrittenAndroidParam(Boolean.class, data, "pkceEnabled"), bound.get("pkceEnabled"));
+        Assertions.assertEquals(
+            ConfigUtils.getOverwrittenAndroidParamMap(data, "additionalParameters"),
+            bound.get("additionalParameters")
+        );
+        Assertions.assertEquals(ConfigUtils.getParamString(data, "android.customHandlerClass"), bound.get("android.customHandlerClass"));
+        Assertions.assertEquals(
+            ConfigUtils.getParam(Boolean.class, data, "android.handleResultOnNewIntent"),
+            bound.get("android.handleResultOnNewIntent")
+        );
+    }
+
+    private static Stream<Arguments> getCallData() {
+        return Stream.of(
+            Arguments.of("{}"),
+            Arguments.of("{\"appId\": \"base\", \"scope\": \" \", \"pkceEnabled\": true}"),
+            Arguments.of("{\"appId\": \"base\", \"android\": {\"appId\": \"android\", \"pkceEnabled\": false}}"),
+            Arguments.of("{\"appId\": 42, \"pkceEnabled\": \"true\", \"android\": {\"scope\": \"\"}}"),
+            Arguments.of("{\"appId\": \"base\", \"android\": \"no object\"}"),
+            Arguments.of("{\"pkceEnabled\": \"yes\", \"ios\": {\"appId\": \"ios\"}}"),
+            Arguments.of(
+                "{\"additionalParameters\": {\"a\": \"1\", \"b\": \"2\", \" \": \"blank\"}," +
+                "\"android\": {\"additionalParameters\": {\"b\": \"android\", \"c\": 3}}}"
+            ),
+            Arguments.of("{\"additionalParameters\": \"no object\", \"android\": {\"additionalParameters\": {\"a\": \"1\"}}}"),
+            Arguments.of("{\"customHandlerClass\": \"base\", \"handleResultOnNewIntent\": true}"),
+            Arguments.of("{\"android\": {\"customHandlerClass\": \"com.example.Handler\", \"handleResultOnNewIntent\": true}}")
+        );
+    }
+
+    @Test
+    public void everySetterIsCalledForMissingOptions() throws JSONException {
+        Map<String, Object> bound = BINDER.bind(new JSObject("{}"), new HashMap<String, Object>());
+        Assertions.assertEquals(6, bound.size());
+        Assertions.assertNull(bound.get("appId"));
+        Assertions.assertNull(bound.get("pkceEnabled"));
+        Assertions.assertTrue(((Map<?, ?>) bound.get("additionalParameters")).isEmpty());
+    }
+
+    @Test
+    public void pluginOptionsAreBoundFromBaseAndAndroid() throws JSONException {
+        JSObject data = new JSObject(
+            "{\"appId\": \"base\", \"authorizationBaseUrl\": \"https://example.com/auth\", \"state\": \" \"," +
+            "\"additionalParameters\": {\"login_hint\": \"user\", \"foo\": \"bar\"}," +
+            "\"resourceUrls\": {\"profile\": \"https://example.com/me\"}, \"resourceTimeouts\": {\"profile\": \"1000\"}," +
+            "\"android\": {\"appId\": \"android\", \"pkceEnabled\": true, \"customHandlerClass\": \"com.example.Handler\"}}"
+        );
+        GenericOAuth2Plugin plugin = new GenericOAuth2Plugin();
+        OAuth2Options options = plugin.buildAuthenticateOptions(data);
+
+        Assertions.assertEquals("android", options.getAppId());
+        Assertions.assertEquals("https://example.com/auth", options.getAuthorizationBaseUrl());
+        Assertions.assertTrue(options.isPkceEnabled());
+        // generated only for an authorization request
+        Assertions.assertNull(options.getPkceCodeVerifier());
+        Assertions.assertNull(options.getState());
+        plugin.generateAuthorizationSecrets(options);
+        Assertions.assertNotNull(options.getPkceCodeVerifier());
+        Assertions.assertNotNull(options.getPkceCodeChallenge());
+        // blank is replaced by a generated one
+        Assertions.assertEquals(20, options.getState().length());
+        Assertions.assertEquals("user", options.getLoginHint());
+        Assertions.assertEquals("bar", options.getAdditionalParameters().get("foo"));
+        Assertions.assertEquals(1000, options.getResourceTimeout("profile"));
+        Assertions.assertEquals("com.example.Handler", options.getCustomHandlerClass());
+        Assertions.assertTrue(options.isHandleResultOnActivityResult());
+        Assertions.assertTrue(options.getAdditionalResourceHeaders().isEmpty());
+    }
+
+    @Test
+    public void suppliedStateWithoutPkceIsKept() throws JSONException {
+        JSObject data = new JSObject("{\"appId\": \"base\", \"state\": \"abc\", \"pkceEnabled\": false}");
+        GenericOAuth2Plugin plugin = new GenericOAuth2Plugin();
+        OAuth2Options options = plugin.buildAuthenticateOptions(data);
+        plugin.generateAuthorizationSecrets(options);
+        Assertions.assertEquals("abc", options.getState());
+        Assertions.assertNull(options.getPkceCodeVerifier());
+    }
+}
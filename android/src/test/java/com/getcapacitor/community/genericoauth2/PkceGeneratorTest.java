@@ -0,0 +1,59 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PkceGeneratorTest {
+
+    @Test
+    public void codeChallengeIsBase64UrlOfSha256() {
+        // SHA-256 of the empty string is e3b0c442...b855
+        Assertions.assertEquals("47DEQpj8HBSa-_TImW-5JCeuQeRkm5NMpJWZG3hSuFU", PkceGenerator.codeChallenge(""));
+    }
+
+    @Test
+    public void encodesBase64UrlWithoutPadding() {
+        Assertions.assertEquals("", PkceGenerator.encodeBase64Url(new byte[0]));
+        Assertions.assertEquals("-w", PkceGenerator.encodeBase64Url(new byte[] { (byte) 0xFB }));
+        Assertions.assertEquals("-_8", PkceGenerator.encodeBase64Url(new byte[] { (byte) 0xFB, (byte) 0xFF }));
+        Assertions.assertEquals("Zm9vYmFy", PkceGenerator.encodeBase64Url("foobar".getBytes()));
+    }
+
+    @Test
+    public void generatesUniqueValuesOfTheFormerLength() {
+        PkceGenerator generator = new PkceGenerator(Runnable::run);
+        Set<String> verifiers = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            PkceGenerator.Pkce pkce = generator.take();
+            Assertions.assertEquals(64, pkce.codeVerifier.length());
+            Assertions.assertEquals(20, pkce.state.length());
+            Assertions.assertTrue(pkce.codeVerifier.matches("[A-Za-z0-9_-]+"));
+            Assertions.assertTrue(pkce.state.matches("[A-Za-z0-9_-]+"));
+            Assertions.assertEquals(PkceGenerator.codeChallenge(pkce.codeVerifier), pkce.codeChallenge);
+            Assertions.assertTrue(verifiers.add(pkce.codeVerifier));
+        }
+    }
+
+    @Test
+    public void takeRefillsThePool() {
+        List<Runnable> pending = new ArrayList<>();
+        PkceGenerator generator = new PkceGenerator(pending::add);
+        // the pool is empty, so it is generated inline
+        Assertions.assertNotNull(generator.take());
+        Assertions.assertEquals(1, pending.size());
+        // a refill is already scheduled
+        generator.take();
+        generator.refill();
+        Assertions.assertEquals(1, pending.size());
+
+        pending.remove(0).run();
+        Assertions.assertEquals(PkceGenerator.POOL_SIZE, generator.getPoolSize());
+        generator.take();
+        Assertions.assertEquals(PkceGenerator.POOL_SIZE - 1, generator.getPoolSize());
+        Assertions.assertEquals(1, pending.size());
+    }
+}
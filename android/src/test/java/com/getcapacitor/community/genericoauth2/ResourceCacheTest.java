@@ -0,0 +1,144 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ResourceCacheTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void keyDependsOnUrlAndSubject() {
+        String key = ResourceCache.key("https://example.com/userinfo", "alice");
+        Assertions.assertEquals(64, key.length());
+        Assertions.assertEquals(key, ResourceCache.key("https://example.com/userinfo", "alice"));
+        Assertions.assertNotEquals(key, ResourceCache.key("https://example.com/userinfo", "bob"));
+        Assertions.assertNotEquals(key, ResourceCache.key("https://example.com/profile", "alice"));
+        Assertions.assertNull(ResourceCache.key("https://example.com/userinfo", null));
+    }
+
+    @Test
+    public void removeSubjectKeepsTheOtherUsers() throws Exception {
+        ResourceCache cache = new ResourceCache(directory, 10000, false, new XorCipher(), "test");
+        ResourceCache.Entry entry = new ResourceCache.Entry("{\"name\":\"Alice\"}", null, null, 0);
+        String aliceUserinfo = ResourceCache.key("https://example.com/userinfo", "alice");
+        String aliceProfile = ResourceCache.key("https://example.com/profile", "alice");
+        String bobUserinfo = ResourceCache.key("https://example.com/userinfo", "bob");
+        cache.put(aliceUserinfo, entry);
+        cache.put(aliceProfile, entry);
+        cache.put(bobUserinfo, entry);
+
+        cache.removeSubject("alice");
+        // runs after the removal on the same background thread
+        CountDownLatch removed = new CountDownLatch(1);
+        cache.revalidateInBackground("done", removed::countDown);
+        Assertions.assertTrue(removed.await(5, TimeUnit.SECONDS));
+
+        Assertions.assertNull(cache.get(aliceUserinfo));
+        Assertions.assertNull(cache.get(aliceProfile));
+        Assertions.assertNotNull(cache.get(bobUserinfo));
+        Assertions.assertFalse(new File(directory, aliceUserinfo).exists());
+        cache.shutdown();
+    }
+
+    @Test
+    public void subjectOfIdToken() {
+        Assertions.assertEquals("alice", ResourceCache.subjectOf(idToken("{\"sub\":\"alice\",\"aud\":\"app\"}")));
+        Assertions.assertNull(ResourceCache.subjectOf(idToken("{\"aud\":\"app\"}")));
+        Assertions.assertNull(ResourceCache.subjectOf("no-jwt"));
+        Assertions.assertNull(ResourceCache.subjectOf(null));
+    }
+
+    @Test
+    public void entriesSurviveANewInstance() {
+        ResourceCache cache = new ResourceCache(directory, 10000, false, new XorCipher(), "test");
+        cache.put("a", new ResourceCache.Entry("{\"name\":\"Alice\"}", "\"v1\"", "Mon, 01 Jan 2024 00:00:00 GMT", 1000));
+
+        ResourceCache.Entry entry = new ResourceCache(directory, 10000, false, new XorCipher(), "test").get("a");
+        Assertions.assertEquals("{\"name\":\"Alice\"}", entry.body);
+        Assertions.assertEquals("\"v1\"", entry.etag);
+        Assertions.assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", entry.lastModified);
+        Assertions.assertTrue(entry.isFresh(999));
+        Assertions.assertFalse(entry.isFresh(1000));
+        Assertions.assertNull(cache.get("b"));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        ResourceCache.Entry entry = new ResourceCache.Entry("{\"name\":\"Alice\"}", null, null, 0);
+        // size of one entry on disk
+        ResourceCache cache = new ResourceCache(directory, Long.MAX_VALUE, false, new XorCipher(), "test");
+        cache.put("size", entry);
+        long entrySize = cache.getSize();
+        cache.remove("size");
+
+        cache = new ResourceCache(directory, entrySize * 2, false, new XorCipher(), "test");
+        cache.put("a", entry);
+        cache.put("b", entry);
+        Assertions.assertNotNull(cache.get("a"));
+        cache.put("c", entry);
+
+        Assertions.assertNotNull(cache.get("a"));
+        Assertions.assertNull(cache.get("b"));
+        Assertions.assertNotNull(cache.get("c"));
+        Assertions.assertEquals(entrySize * 2, cache.getSize());
+        Assertions.assertFalse(new File(directory, "b").exists());
+    }
+
+    @Test
+    public void entriesLargerThanTheCacheAreNotStored() {
+        ResourceCache cache = new ResourceCache(directory, 10, false, new XorCipher(), "test");
+        cache.put("a", new ResourceCache.Entry("{\"name\":\"Alice\"}", null, null, 0));
+        Assertions.assertNull(cache.get("a"));
+        Assertions.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void entriesAreEncrypted() throws Exception {
+        ResourceCache cache = new ResourceCache(directory, 10000, false, new XorCipher(), "test");
+        cache.put("a", new ResourceCache.Entry("{\"name\":\"Alice\"}", null, null, 1000));
+        byte[] file = Files.readAllBytes(new File(directory, "a").toPath());
+        Assertions.assertFalse(new String(file, StandardCharsets.UTF_8).contains("Alice"));
+        Assertions.assertEquals("{\"name\":\"Alice\"}", cache.get("a").body);
+    }
+
+    // stands in for the AndroidKeyStore, which is not available on the JVM
+    private static class XorCipher extends KeystoreCipher {
+
+        private static final byte KEY = 0x5a;
+
+        @Override
+        public byte[] encrypt(byte[] plain) {
+            return xor(plain);
+        }
+
+        @Override
+        public byte[] decrypt(byte[] data) {
+            return xor(data);
+        }
+
+        private static byte[] xor(byte[] data) {
+            byte[] result = new byte[data.length];
+            for (int i = 0; i < data.length; i++) {
+                result[i] = (byte) (data[i] ^ KEY);
+            }
+            return result;
+        }
+    }
+
+    private static String idToken(String claims) {
+        return (
+            PkceGenerator.encodeBase64Url("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8)) +
+            "." +
+            PkceGenerator.encodeBase64Url(claims.getBytes(StandardCharsets.UTF_8)) +
+            ".sig"
+        );
+    }
+}
@@ -0,0 +1,207 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ResourceHttpClientTest {
+
+    private static final String BODY = "{\"sub\":\"user\"}";
+
+    private ServerSocket server;
+    private final AtomicInteger acceptedConnections = new AtomicInteger();
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    acceptedConnections.incrementAndGet();
+                    Thread handler = new Thread(() -> serve(socket));
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterEach
+    public void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void consumedConnectionsAreReused() throws IOException {
+        ResourceHttpClient client = new ResourceHttpClient(5000, 5000, 0);
+        for (int i = 0; i < 5; i++) {
+            HttpURLConnection conn = client.open(url());
+            Assertions.assertEquals(BODY, read(ResourceHttpClient.decode(conn.getInputStream(), conn.getContentEncoding())));
+            client.release(conn, true);
+        }
+        Assertions.assertEquals(1, acceptedConnections.get());
+        Assertions.assertEquals(5, client.getRequests());
+    }
+
+    @Test
+    public void timeoutsAreApplied() throws IOException {
+        ResourceHttpClient client = new ResourceHttpClient(1234, 5678, 0);
+        HttpURLConnection conn = client.open(url());
+        Assertions.assertEquals(1234, conn.getConnectTimeout());
+        Assertions.assertEquals(5678, conn.getReadTimeout());
+        client.release(conn, false);
+    }
+
+    @Test
+    public void timeoutPerRequest() throws IOException {
+        ResourceHttpClient client = new ResourceHttpClient(1234, 5678, 0);
+        HttpURLConnection conn = client.open(url(), 900);
+        Assertions.assertEquals(900, conn.getConnectTimeout());
+        Assertions.assertEquals(900, conn.getReadTimeout());
+        client.release(conn, false);
+    }
+
+    @Test
+    public void plainConnectionsLeaveTheEncodingToThePlatform() throws IOException {
+        ResourceHttpClient client = new ResourceHttpClient(5000, 5000, 0);
+        HttpURLConnection conn = client.openConnection(url(), 1234, 5678);
+        Assertions.assertNull(conn.getRequestProperty("Accept-Encoding"));
+        Assertions.assertEquals(1234, conn.getConnectTimeout());
+        Assertions.assertEquals(5678, conn.getReadTimeout());
+        Assertions.assertEquals(BODY, read(conn.getInputStream()));
+        client.release(conn, true);
+    }
+
+    @Test
+    public void requestsRunInParallel() throws Exception {
+        ResourceHttpClient client = new ResourceHttpClient(5000, 5000, 0);
+        CountDownLatch started = new CountDownLatch(ResourceHttpClient.MAX_PARALLEL_REQUESTS);
+        List<Future<String>> futures = new ArrayList<>();
+        // one more than threads, the last one runs on the calling thread instead of waiting for a free one
+        for (int i = 0; i <= ResourceHttpClient.MAX_PARALLEL_REQUESTS; i++) {
+            futures.add(
+                client.submit(() -> {
+                    started.countDown();
+                    started.await(5, TimeUnit.SECONDS);
+                    return Thread.currentThread().getName();
+                })
+            );
+        }
+        Assertions.assertEquals(Thread.currentThread().getName(), futures.get(ResourceHttpClient.MAX_PARALLEL_REQUESTS).get());
+        for (Future<String> future : futures) {
+            Assertions.assertNotNull(future.get(5, TimeUnit.SECONDS));
+        }
+        client.shutdown();
+    }
+
+    @Test
+    public void gzipIsNegotiated() throws IOException {
+        ResourceHttpClient client = new ResourceHttpClient(5000, 5000, 0);
+        HttpURLConnection conn = client.open(url());
+        Assertions.assertEquals("gzip", conn.getContentEncoding());
+        CountingInputStream wire = new CountingInputStream(conn.getInputStream(), 0);
+        Assertions.assertEquals(BODY, read(ResourceHttpClient.decode(wire, conn.getContentEncoding())));
+        Assertions.assertEquals(conn.getContentLength(), wire.getCount());
+        client.release(conn, true);
+    }
+
+    @Test
+    public void deflateWithAndWithoutZlibWrapper() throws IOException {
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(BODY, read(ResourceHttpClient.decode(new ByteArrayInputStream(deflate(body, false)), "deflate")));
+        Assertions.assertEquals(BODY, read(ResourceHttpClient.decode(new ByteArrayInputStream(deflate(body, true)), "Deflate")));
+    }
+
+    @Test
+    public void identityAndUnknownEncodings() throws IOException {
+        InputStream in = new ByteArrayInputStream(new byte[0]);
+        Assertions.assertSame(in, ResourceHttpClient.decode(in, null));
+        Assertions.assertSame(in, ResourceHttpClient.decode(in, "identity"));
+        Assertions.assertThrows(IOException.class, () -> ResourceHttpClient.decode(in, "br"));
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getLocalPort() + "/userinfo";
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream is = in) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data, boolean raw) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            deflate.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    // minimal HTTP/1.1 server answering every request on the same socket until the client closes it
+    private static void serve(Socket socket) {
+        try (Socket s = socket) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = s.getOutputStream();
+            String requestLine;
+            while ((requestLine = reader.readLine()) != null) {
+                if (requestLine.isEmpty()) {
+                    continue;
+                }
+                String header;
+                boolean gzip = false;
+                while ((header = reader.readLine()) != null && !header.isEmpty()) {
+                    if (header.toLowerCase().startsWith("accept-encoding:") && header.contains("gzip")) {
+                        gzip = true;
+                    }
+                }
+                byte[] body = gzip ? gzip(BODY.getBytes(StandardCharsets.UTF_8)) : BODY.getBytes(StandardCharsets.UTF_8);
+                String head =
+                    "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\n" +
+                    (gzip ? "Content-Encoding: gzip\r\n" : "") +
+                    "Content-Length: " +
+                    body.length +
+                    "\r\nConnection: keep-alive\r\n\r\n";
+                out.write(head.getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ResourcePipelineTest {
+
+    // stands in for the main thread, runs the posted callbacks when the test says so
+    private final List<Runnable> mainThread = new ArrayList<>();
+
+    @Test
+    public void resultIsHandedToTheMainThread() throws Exception {
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ResourcePipeline pipeline = new ResourcePipeline(executor, this::post);
+        List<String> results = new ArrayList<>();
+
+        pipeline.submit("call1", () -> "response", results::add, e -> Assertions.fail(e));
+        awaitIdle(executor);
+        Assertions.assertTrue(results.isEmpty());
+        runMainThread();
+        Assertions.assertEquals(1, results.size());
+        Assertions.assertEquals("response", results.get(0));
+        Assertions.assertEquals(0, pipeline.getPendingCount());
+    }
+
+    @Test
+    public void errorIsHandedToTheMainThread() throws Exception {
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ResourcePipeline pipeline = new ResourcePipeline(executor, this::post);
+        List<Exception> errors = new ArrayList<>();
+
+        pipeline.submit(
+            "call1",
+            () -> {
+                throw new IOException("offline");
+            },
+            result -> Assertions.fail("no result expected"),
+            errors::add
+        );
+        awaitIdle(executor);
+        runMainThread();
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertTrue(errors.get(0) instanceof IOException);
+    }
+
+    @Test
+    public void cancelledCallIsNotResolved() throws Exception {
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ResourcePipeline pipeline = new ResourcePipeline(executor, this::post);
+        List<String> results = new ArrayList<>();
+
+        pipeline.submit("call1", () -> "response", results::add, e -> Assertions.fail(e));
+        awaitIdle(executor);
+        // the result is already queued for the main thread
+        pipeline.cancel("call1");
+        runMainThread();
+        Assertions.assertTrue(results.isEmpty());
+        Assertions.assertEquals(0, pipeline.getPendingCount());
+    }
+
+    @Test
+    public void cancelStopsTheWorkStartedByTheTask() throws Exception {
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ResourcePipeline pipeline = new ResourcePipeline(executor, this::post);
+        CountDownLatch started = new CountDownLatch(1);
+        CancellableWork work = new CancellableWork(started);
+
+        pipeline.submit("call1", work, result -> Assertions.fail("no result expected"), e -> Assertions.fail(e));
+        started.await();
+        Assertions.assertTrue(pipeline.cancel("call1"));
+        Assertions.assertTrue(work.cancelled);
+        Assertions.assertFalse(pipeline.cancel("call1"));
+        awaitIdle(executor);
+        runMainThread();
+    }
+
+    @Test
+    public void slowCallDoesNotBlockTheOthers() throws Exception {
+        ExecutorService executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        ResourcePipeline pipeline = new ResourcePipeline(executor, this::post);
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+        List<String> results = new ArrayList<>();
+
+        pipeline.submit(
+            "slow",
+            () -> {
+                slowStarted.countDown();
+                releaseSlow.await();
+                return "slow";
+            },
+            results::add,
+            e -> Assertions.fail(e)
+        );
+        slowStarted.await();
+        pipeline.submit(
+            "fast",
+            () -> {
+                fastDone.countDown();
+                return "fast";
+            },
+            results::add,
+            e -> Assertions.fail(e)
+        );
+        // the fast call completes while the slow one still blocks its thread
+        Assertions.assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        releaseSlow.countDown();
+        awaitIdle(executor);
+        runMainThread();
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertTrue(results.contains("fast"));
+    }
+
+    @Test
+    public void fullQueueRejectsImmediately() {
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1));
+        ResourcePipeline pipeline = new ResourcePipeline(executor, this::post);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Exception> errors = new ArrayList<>();
+
+        pipeline.submit("running", () -> release.await(5, TimeUnit.SECONDS), result -> {}, errors::add);
+        pipeline.submit("queued", () -> true, result -> {}, errors::add);
+        pipeline.submit("rejected", () -> true, result -> {}, errors::add);
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertTrue(errors.get(0) instanceof RejectedExecutionException);
+        Assertions.assertEquals(2, pipeline.getPendingCount());
+        release.countDown();
+        pipeline.shutdown();
+    }
+
+    private static class CancellableWork implements Callable<String>, ResourcePipeline.Cancellable {
+
+        private final CountDownLatch started;
+        volatile boolean cancelled;
+
+        CancellableWork(CountDownLatch started) {
+            this.started = started;
+        }
+
+        @Override
+        public String call() throws Exception {
+            started.countDown();
+            // blocks like a request the interrupt does not reach
+            while (!cancelled) {
+                Thread.sleep(1);
+            }
+            return "response";
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private synchronized void post(Runnable runnable) {
+        mainThread.add(runnable);
+    }
+
+    private void runMainThread() {
+        List<Runnable> queued;
+        synchronized (this) {
+            queued = new ArrayList<>(mainThread);
+            mainThread.clear();
+        }
+        for (Runnable runnable : queued) {
+            runnable.run();
+        }
+    }
+
+    private static void awaitIdle(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,44 @@
+package com.getcapacitor.community.genericoauth2;
+
+import com.getcapacitor.JSObject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ResourceRequestTaskTest {
+
+    @Test
+    public void supportedMethods() {
+        Assertions.assertTrue(ResourceRequestTask.isSupportedMethod("GET"));
+        Assertions.assertTrue(ResourceRequestTask.isSupportedMethod("POST"));
+        Assertions.assertTrue(ResourceRequestTask.isSupportedMethod("PUT"));
+        Assertions.assertTrue(ResourceRequestTask.isSupportedMethod("DELETE"));
+        Assertions.assertFalse(ResourceRequestTask.isSupportedMethod("PATCH"));
+        Assertions.assertFalse(ResourceRequestTask.isSupportedMethod("get"));
+    }
+
+    @Test
+    public void onlyPostIsNotRetried() {
+        Assertions.assertTrue(ResourceRequestTask.isIdempotent("GET"));
+        Assertions.assertTrue(ResourceRequestTask.isIdempotent("PUT"));
+        Assertions.assertTrue(ResourceRequestTask.isIdempotent("DELETE"));
+        Assertions.assertFalse(ResourceRequestTask.isIdempotent("POST"));
+    }
+
+    @Test
+    public void headersAreLowerCasedAndJoined() throws Exception {
+        Map<String, List<String>> fields = new LinkedHashMap<>();
+        fields.put(null, Collections.singletonList("HTTP/1.1 200 OK"));
+        fields.put("Content-Type", Collections.singletonList("application/json"));
+        fields.put("Cache-Control", Arrays.asList("no-cache", "no-store"));
+        JSObject headers = ResourceRequestTask.buildHeaders(fields);
+
+        Assertions.assertEquals(2, headers.length());
+        Assertions.assertEquals("application/json", headers.getString("content-type"));
+        Assertions.assertEquals("no-cache, no-store", headers.getString("cache-control"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+import net.openid.appauth.AuthorizationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void delayIsJitteredBelowExponentialCap() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000, new Random(42));
+        for (int i = 0; i < 100; i++) {
+            long first = policy.delay(1, null, 0);
+            Assertions.assertTrue(first >= 0 && first < 100, "delay " + first);
+            long third = policy.delay(3, null, 0);
+            Assertions.assertTrue(third >= 0 && third < 400, "delay " + third);
+            long tenth = policy.delay(10, null, 0);
+            Assertions.assertTrue(tenth >= 0 && tenth < 1000, "delay " + tenth);
+        }
+    }
+
+    @Test
+    public void noDelayOnceRetriesAreExhausted() {
+        RetryPolicy policy = new RetryPolicy(2, 100, 1000);
+        Assertions.assertTrue(policy.delay(2, null, 0) >= 0);
+        Assertions.assertEquals(-1, policy.delay(3, null, 0));
+        Assertions.assertEquals(-1, new RetryPolicy(0, 100, 1000).delay(1, null, 0));
+    }
+
+    @Test
+    public void retryAfterTakesPrecedence() {
+        RetryPolicy policy = new RetryPolicy(2, 100, 10000);
+        Assertions.assertEquals(3000, policy.delay(1, "3", 0));
+        // Sun, 06 Nov 1994 08:49:37 GMT
+        long date = 784111777000L;
+        Assertions.assertEquals(5000, policy.delay(1, "Sun, 06 Nov 1994 08:49:37 GMT", date - 5000));
+        Assertions.assertEquals(0, policy.delay(1, "Sun, 06 Nov 1994 08:49:37 GMT", date + 5000));
+    }
+
+    @Test
+    public void retryAfterBeyondMaxDelayIsNotRetried() {
+        RetryPolicy policy = new RetryPolicy(2, 100, 10000);
+        Assertions.assertEquals(-1, policy.delay(1, "60", 0));
+    }
+
+    @Test
+    public void invalidRetryAfterIsIgnored() {
+        Assertions.assertEquals(-1, RetryPolicy.parseRetryAfter(null, 0));
+        Assertions.assertEquals(-1, RetryPolicy.parseRetryAfter("soon", 0));
+        Assertions.assertEquals(0, RetryPolicy.parseRetryAfter("-5", 0));
+    }
+
+    @Test
+    public void retryableStatusCodes() {
+        Assertions.assertTrue(RetryPolicy.isRetryableStatus(429));
+        Assertions.assertTrue(RetryPolicy.isRetryableStatus(503));
+        Assertions.assertFalse(RetryPolicy.isRetryableStatus(400));
+        Assertions.assertFalse(RetryPolicy.isRetryableStatus(401));
+        Assertions.assertFalse(RetryPolicy.isRetryableStatus(501));
+    }
+
+    @Test
+    public void retryableIOExceptions() {
+        Assertions.assertTrue(RetryPolicy.isRetryable(new SocketTimeoutException()));
+        Assertions.assertTrue(RetryPolicy.isRetryable(new IOException()));
+        Assertions.assertFalse(RetryPolicy.isRetryable(new MalformedURLException()));
+        Assertions.assertFalse(RetryPolicy.isRetryable(new CountingInputStream.LimitExceededException(1)));
+        Assertions.assertFalse(RetryPolicy.isRetryable(new CircuitBreakerRegistry.OpenException("https://example.com")));
+        // e.g. the call was cancelled
+        Assertions.assertFalse(RetryPolicy.isRetryable(new InterruptedIOException()));
+    }
+
+    @Test
+    public void interruptedThreadDoesNotRetry() {
+        Thread.currentThread().interrupt();
+        try {
+            Assertions.assertFalse(RetryPolicy.isRetryable(new SocketTimeoutException()));
+            Assertions.assertFalse(RetryPolicy.isRetryable(new IOException()));
+        } finally {
+            // clears the flag for the other tests
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void retryableAuthorizationExceptions() {
+        Assertions.assertTrue(RetryPolicy.isRetryable(AuthorizationException.GeneralErrors.NETWORK_ERROR));
+        Assertions.assertTrue(RetryPolicy.isRetryable(AuthorizationException.GeneralErrors.SERVER_ERROR));
+        Assertions.assertTrue(RetryPolicy.isRetryable(tokenError("temporarily_unavailable")));
+        Assertions.assertFalse(RetryPolicy.isRetryable(tokenError("invalid_grant")));
+        Assertions.assertFalse(RetryPolicy.isRetryable(AuthorizationException.GeneralErrors.ID_TOKEN_VALIDATION_ERROR));
+    }
+
+    private static AuthorizationException tokenError(String error) {
+        return new AuthorizationException(AuthorizationException.TYPE_OAUTH_TOKEN_ERROR, 2000, error, null, null, null);
+    }
+}
@@ -0,0 +1,26 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.io.IOException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TokenConnectionBuilderTest {
+
+    @Test
+    public void redirectKeepsPathAndQuery() throws IOException {
+        Assertions.assertEquals(
+            "http://10.0.2.2:8080/oauth2/token?a=b%20c",
+            TokenConnectionBuilder.redirect("https://example.com/oauth2/token?a=b%20c", "http://10.0.2.2:8080")
+        );
+        Assertions.assertEquals(
+            "http://localhost/token",
+            TokenConnectionBuilder.redirect("https://example.com:8443/token", "http://localhost/ignored")
+        );
+    }
+
+    @Test
+    public void redirectRejectsInvalidServer() {
+        Assertions.assertThrows(IOException.class, () -> TokenConnectionBuilder.redirect("https://example.com/token", "localhost"));
+        Assertions.assertThrows(IOException.class, () -> TokenConnectionBuilder.redirect("https://example.com/token", "http://in valid"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TokenRefreshSchedulerTest {
+
+    private static final long NOW = 1_000_000L;
+    private static final long LIFETIME = 3_600_000L;
+
+    @Test
+    public void refreshAfterFractionOfLifetime() {
+        long delay = TokenRefreshScheduler.computeDelay(NOW, NOW, NOW + LIFETIME, 0.8, 0, new Random(1));
+        Assertions.assertEquals(2_880_000L, delay);
+    }
+
+    @Test
+    public void jitterStaysInRange() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long delay = TokenRefreshScheduler.computeDelay(NOW, NOW, NOW + LIFETIME, 0.8, 0.1, random);
+            Assertions.assertTrue(delay >= 2_520_000L, "delay too short: " + delay);
+            Assertions.assertTrue(delay <= 3_240_000L, "delay too long: " + delay);
+        }
+    }
+
+    @Test
+    public void rearmKeepsOriginalLifetime() {
+        // resumed after half of the lifetime
+        long delay = TokenRefreshScheduler.computeDelay(NOW + LIFETIME / 2, NOW, NOW + LIFETIME, 0.8, 0, new Random(1));
+        Assertions.assertEquals(1_080_000L, delay);
+    }
+
+    @Test
+    public void overdueRefreshesImmediately() {
+        Assertions.assertEquals(0, TokenRefreshScheduler.computeDelay(NOW + LIFETIME - 1, NOW, NOW + LIFETIME, 0.8, 0, new Random(1)));
+        Assertions.assertEquals(0, TokenRefreshScheduler.computeDelay(NOW + LIFETIME * 2, NOW, NOW + LIFETIME, 0.8, 0, new Random(1)));
+    }
+
+    @Test
+    public void jitterNeverExceedsExpiry() {
+        long delay = TokenRefreshScheduler.computeDelay(NOW, NOW, NOW + LIFETIME, 0.95, 0.5, new Random() {
+            @Override
+            public double nextDouble() {
+                return 1;
+            }
+        });
+        Assertions.assertEquals(LIFETIME, delay);
+    }
+}
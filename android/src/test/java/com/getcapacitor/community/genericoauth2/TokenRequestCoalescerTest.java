@@ -0,0 +1,45 @@
+package com.getcapacitor.community.genericoauth2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.openid.appauth.AuthorizationService.TokenResponseCallback;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TokenRequestCoalescerTest {
+
+    @Test
+    public void sameKeyIsExecutedOnce() {
+        TokenRequestCoalescer coalescer = new TokenRequestCoalescer();
+        List<TokenResponseCallback> pending = new ArrayList<>();
+        AtomicInteger completed = new AtomicInteger();
+        String key = TokenRequestCoalescer.refreshKey("appId", "https://example.com/token", "refresh");
+
+        Assertions.assertTrue(coalescer.execute(key, (response, ex) -> completed.incrementAndGet(), pending::add));
+        Assertions.assertFalse(coalescer.execute(key, (response, ex) -> completed.incrementAndGet(), pending::add));
+        Assertions.assertFalse(coalescer.execute(key, (response, ex) -> completed.incrementAndGet(), pending::add));
+        Assertions.assertEquals(1, pending.size());
+        Assertions.assertEquals(2, coalescer.getCoalescedCount());
+
+        pending.get(0).onTokenRequestCompleted(null, null);
+        Assertions.assertEquals(3, completed.get());
+
+        // the key is free again after completion
+        Assertions.assertTrue(coalescer.execute(key, (response, ex) -> completed.incrementAndGet(), pending::add));
+        Assertions.assertEquals(2, pending.size());
+    }
+
+    @Test
+    public void differentKeysAreExecutedSeparately() {
+        TokenRequestCoalescer coalescer = new TokenRequestCoalescer();
+        List<TokenResponseCallback> pending = new ArrayList<>();
+        String endpoint = "https://example.com/token";
+
+        Assertions.assertTrue(coalescer.execute(TokenRequestCoalescer.refreshKey("appId", endpoint, "r1"), (response, ex) -> {}, pending::add));
+        Assertions.assertTrue(coalescer.execute(TokenRequestCoalescer.refreshKey("appId", endpoint, "r2"), (response, ex) -> {}, pending::add));
+        Assertions.assertTrue(coalescer.execute(TokenRequestCoalescer.refreshKey("other", endpoint, "r1"), (response, ex) -> {}, pending::add));
+        Assertions.assertEquals(3, pending.size());
+        Assertions.assertEquals(0, coalescer.getCoalescedCount());
+    }
+}
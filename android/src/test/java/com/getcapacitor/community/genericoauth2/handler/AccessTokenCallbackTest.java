@@ -0,0 +1,29 @@
+package com.getcapacitor.community.genericoauth2.handler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AccessTokenCallbackTest {
+
+    @Test
+    public void passesTheAccessTokenOfTheResponseByDefault() {
+        final String[] accessToken = new String[1];
+        AccessTokenCallback callback = new AccessTokenCallback() {
+            @Override
+            public void onSuccess(String token) {
+                accessToken[0] = token;
+            }
+
+            @Override
+            public void onCancel() {}
+
+            @Override
+            public void onError(Exception error) {}
+        };
+        AccessTokenResponse response = new AccessTokenResponse("token");
+        response.setAccessTokenExpirationTime(1000L);
+        response.setRefreshToken("refresh");
+        callback.onSuccess(response);
+        Assertions.assertEquals("token", accessToken[0]);
+    }
+}
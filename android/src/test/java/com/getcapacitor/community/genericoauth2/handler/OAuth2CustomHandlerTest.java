@@ -0,0 +1,52 @@
+package com.getcapacitor.community.genericoauth2.handler;
+
+import android.app.Activity;
+import com.getcapacitor.PluginCall;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class OAuth2CustomHandlerTest {
+
+    private static class SyncLogoutHandler implements OAuth2CustomHandler {
+
+        private final boolean successful;
+
+        SyncLogoutHandler(boolean successful) {
+            this.successful = successful;
+        }
+
+        @Override
+        public void getAccessToken(Activity activity, PluginCall pluginCall, AccessTokenCallback callback) {}
+
+        @Override
+        public boolean logout(Activity activity, PluginCall pluginCall) {
+            return successful;
+        }
+    }
+
+    private static class RecordingCallback implements LogoutCallback {
+
+        String result;
+
+        @Override
+        public void onSuccess() {
+            result = "success";
+        }
+
+        @Override
+        public void onError(Exception error) {
+            result = error == null ? "error" : error.getMessage();
+        }
+    }
+
+    @Test
+    public void adaptsSyncLogout() {
+        RecordingCallback callback = new RecordingCallback();
+        new SyncLogoutHandler(true).logout(null, null, callback);
+        Assertions.assertEquals("success", callback.result);
+
+        callback = new RecordingCallback();
+        new SyncLogoutHandler(false).logout(null, null, callback);
+        Assertions.assertEquals("error", callback.result);
+    }
+}
@@ -5,6 +5,7 @@
 // each method the plugin supports using the CAP_PLUGIN_METHOD macro.
 CAP_PLUGIN(GenericOAuth2Plugin, "GenericOAuth2",
            CAP_PLUGIN_METHOD(refreshToken, CAPPluginReturnPromise);
+           CAP_PLUGIN_METHOD(prepareAuthentication, CAPPluginReturnPromise);
            CAP_PLUGIN_METHOD(authenticate, CAPPluginReturnPromise);
            CAP_PLUGIN_METHOD(logout, CAPPluginReturnPromise);
 )
@@ -104,6 +104,13 @@ public class GenericOAuth2Plugin: CAPPlugin {
         OAuth2Swift.handle(url: url)
     }
 
+    /*
+     * Plugin function to prepare authenticate. Nothing to prepare on iOS yet.
+     */
+    @objc func prepareAuthentication(_ call: CAPPluginCall) {
+        call.resolve()
+    }
+
     /*
      * Plugin function to refresh tokens
      */
@@ -5,6 +5,15 @@ export interface GenericOAuth2Plugin {
    * @returns {Promise<any>} the resource url response
    */
   authenticate(options: OAuth2AuthenticateOptions): Promise<any>;
+  /**
+   * Prepare a later `authenticate` call with the same options, e.g. when the login screen is shown.
+   * Warms up the browser, lets it preload the login page and generates PKCE verifier and state in advance.
+   * Only the next `authenticate` call with exactly the same options uses the prepared request.
+   *
+   * Only on Android. Resolves without doing anything on the other platforms.
+   * @param {OAuth2AuthenticateOptions} options The options which will be passed to `authenticate`
+   */
+  prepareAuthentication(options: OAuth2AuthenticateOptions): Promise<void>;
   /**
    * Listens for OAuth implicit redirect flow queryString CODE to generate an access_token
    * @param {OAuth2RedirectAuthenticationOptions} options
@@ -16,9 +25,47 @@ export interface GenericOAuth2Plugin {
   /**
    * Get a new access token based on the given refresh token.
    * @param {OAuth2RefreshTokenOptions} options
-   * @returns {Promise<any>} the token endpoint response
+   * @returns {Promise<OAuth2RefreshTokenResult>} the token endpoint response
+   */
+  refreshToken(
+    options: OAuth2RefreshTokenOptions,
+  ): Promise<OAuth2RefreshTokenResult>;
+  /**
+   * Get the access token of an already authenticated session without opening the browser.
+   * A still valid token is returned from the plugin's cache without any network request,
+   * an expired one is refreshed first if a refresh token is available.
+   *
+   * Only on Android.
+   * @param {OAuth2AuthenticateOptions} options The authenticate options. `appId`, `authorizationBaseUrl` and the `login_hint` in `additionalParameters` identify the session.
+   * @returns {Promise<OAuth2AccessTokenResult>} the access token incl. cache metadata
+   */
+  getAccessToken(
+    options: OAuth2AuthenticateOptions,
+  ): Promise<OAuth2AccessTokenResult>;
+  /**
+   * Send a request with the access token of an authenticated session, without reading the token in JS.
+   * An expired token is refreshed first and a request rejected with 401 is replayed once with a refreshed token.
+   *
+   * Only on Android.
+   * @param {OAuth2RequestOptions} options The request and the authenticate options identifying the session like in `getAccessToken`
+   * @returns {Promise<OAuth2RequestResult>} the response, also for HTTP error status codes
+   */
+  request(options: OAuth2RequestOptions): Promise<OAuth2RequestResult>;
+  /**
+   * Get the state of the circuit breakers of the token and resource endpoints which failed so far.
+   *
+   * Only on Android.
+   * @returns {Promise<OAuth2CircuitBreakerState>} the state per endpoint
+   */
+  getCircuitBreakerState(): Promise<OAuth2CircuitBreakerState>;
+  /**
+   * Get the latency histograms of the phases of authenticate, refreshToken and logout since app start.
+   * Requires `latencyMetricsEnabled` in the plugin configuration.
+   *
+   * Only on Android.
+   * @returns {Promise<OAuth2LatencyMetrics>} the histogram per phase
    */
-  refreshToken(options: OAuth2RefreshTokenOptions): Promise<any>;
+  getLatencyMetrics(): Promise<OAuth2LatencyMetrics>;
   /**
    * Logout from the authenticated OAuth 2 provider
    * @param {OAuth2AuthenticateOptions} options Although not all options are needed. We simply reuse the options from authenticate
@@ -38,6 +85,119 @@ export interface ImplicitFlowRedirectOptions extends OAuth2AuthenticateOptions {
   response_url: string;
 }
 
+export interface OAuth2AccessTokenResult {
+  access_token: string;
+  id_token?: string;
+  /**
+   * Expiration time of the access token in milliseconds since epoch.
+   */
+  access_token_expiration_time?: number;
+  /**
+   * true if the token was returned from the cache, false if it had to be refreshed.
+   */
+  cache_hit: boolean;
+  /**
+   * Number of getAccessToken calls served from the cache since app start.
+   */
+  cache_hits: number;
+  /**
+   * Number of getAccessToken calls which needed a refresh since app start.
+   */
+  cache_misses: number;
+}
+
+export interface OAuth2RefreshTokenResult {
+  [key: string]: any;
+  /**
+   * true if the call joined a running refresh with the same refresh token instead of sending its own request.
+   * Only on Android.
+   */
+  coalesced?: boolean;
+  /**
+   * Number of refreshToken calls which joined a running refresh since app start.
+   * Only on Android.
+   */
+  coalesced_count?: number;
+}
+
+export interface OAuth2RequestOptions extends OAuth2AuthenticateOptions {
+  url: string;
+  /**
+   * Defaults to GET. Only GET, PUT and DELETE requests are retried on transient failures.
+   */
+  method?: 'GET' | 'POST' | 'PUT' | 'DELETE';
+  /**
+   * Sent in addition to `additionalResourceHeaders`, replacing the ones with the same name.
+   */
+  headers?: { [key: string]: string };
+  /**
+   * The request body. Objects and arrays are sent as JSON, anything else as text.
+   */
+  data?: any;
+  /**
+   * Connect and read timeout in milliseconds.
+   */
+  timeout?: number;
+}
+
+export interface OAuth2RequestResult {
+  status: number;
+  /**
+   * Header names in lower case.
+   */
+  headers: { [key: string]: string };
+  /**
+   * The parsed body for a JSON Content-Type, otherwise the text. Missing if the body is empty.
+   */
+  data?: any;
+  /**
+   * true if the access token was refreshed for this request, the new one is in `access_token`.
+   */
+  access_token_refreshed?: boolean;
+  access_token?: string;
+}
+
+export interface OAuth2CircuitBreakerState {
+  endpoints: {
+    /**
+     * The url without query.
+     */
+    endpoint: string;
+    state: 'closed' | 'open' | 'half_open';
+    consecutive_failures: number;
+    /**
+     * Milliseconds until a trial request is let through again. Only if open.
+     */
+    retry_after_ms?: number;
+  }[];
+}
+
+export interface OAuth2LatencyMetrics {
+  enabled: boolean;
+  /**
+   * Upper bounds in milliseconds of the histogram buckets.
+   */
+  bounds: number[];
+  phases: {
+    operation: 'authenticate' | 'refreshToken' | 'logout';
+    /**
+     * e.g. `launch`, `interaction`, `token_exchange`, `fresh_tokens`,
+     * `resource`, `token_request` or `total`
+     */
+    phase: string;
+    count: number;
+    /**
+     * Sum of all durations in milliseconds.
+     */
+    sum: number;
+    max: number;
+    /**
+     * Count per bucket of `bounds`, the last one counts the longer durations.
+     */
+    counts: number[];
+  }[];
+}
+
 export interface OAuth2RefreshTokenOptions {
   /**
    * The app id (client id) you get from the oauth provider like Google, Facebook,...
@@ -45,8 +205,16 @@ export interface OAuth2RefreshTokenOptions {
   appId: string;
   /**
    * Url for retrieving the access_token.
+   *
+   * required! Unless an `issuer` is given on Android.
+   */
+  accessTokenEndpoint?: string;
+  /**
+   * OpenID Connect issuer, the access token endpoint is read from its discovery document if not given.
+   *
+   * Only on Android.
    */
-  accessTokenEndpoint: string;
+  issuer?: string;
   /**
    * The refresh token that will be used to obtain the new access token.
    */
@@ -172,6 +340,22 @@ export interface AndroidOptions extends OAuth2AuthenticateBaseOptions {
    * Default handling the activity result.
    */
   handleResultOnActivityResult?: boolean;
+  /**
+   * OpenID Connect issuer e.g. https://accounts.google.com. The endpoints not given, incl. the end session endpoint for logout,
+   * are read from its `.well-known/openid-configuration`, which is cached according to its Cache-Control header.
+   *
+   * The `id_token` of the code flow is validated against the issuer's JWKS and the result gets `id_token_validated: true`.
+   */
+  issuer?: string;
+  /**
+   * Named resources loaded in parallel with the same access token, e.g. `{ profile: "https://...", settings: "https://..." }`.
+   * The results are returned in `resource_responses` by name, failed ones in `resource_errors` without failing the call.
+   */
+  resourceUrls?: { [name: string]: string };
+  /**
+   * Connect and read timeout in milliseconds per name of `resourceUrls`.
+   */
+  resourceTimeouts?: { [name: string]: number };
 }
 
 export interface IosOptions extends OAuth2AuthenticateBaseOptions {
@@ -5,6 +5,11 @@ import type {
   GenericOAuth2Plugin,
   OAuth2RefreshTokenOptions,
   ImplicitFlowRedirectOptions,
+  OAuth2AccessTokenResult,
+  OAuth2CircuitBreakerState,
+  OAuth2LatencyMetrics,
+  OAuth2RequestOptions,
+  OAuth2RequestResult,
 } from './definitions';
 import type { WebOptions } from './web-utils';
 import { WebUtils } from './web-utils';
@@ -17,6 +22,16 @@ export class GenericOAuth2Web extends WebPlugin implements GenericOAuth2Plugin {
   private intervalLength = 100;
   private windowClosedByPlugin: boolean;
 
+  /**
+   * There is nothing to prepare for the popup window.
+   */
+  // eslint-disable-next-line @typescript-eslint/no-unused-vars
+  async prepareAuthentication(
+    _options: OAuth2AuthenticateOptions,
+  ): Promise<void> {
+    return;
+  }
+
   /**
    * Get a new access token using an existing refresh token.
    */
@@ -27,6 +42,43 @@ export class GenericOAuth2Web extends WebPlugin implements GenericOAuth2Plugin {
     });
   }
 
+  /**
+   * Get the cached access token of an authenticated session.
+   */
+  // eslint-disable-next-line @typescript-eslint/no-unused-vars
+  async getAccessToken(
+    _options: OAuth2AuthenticateOptions,
+  ): Promise<OAuth2AccessTokenResult> {
+    return new Promise<OAuth2AccessTokenResult>((_resolve, reject) => {
+      reject(new Error('Functionality not implemented for PWAs yet'));
+    });
+  }
+
+  /**
+   * Send a request with the access token of an authenticated session.
+   */
+  // eslint-disable-next-line @typescript-eslint/no-unused-vars
+  async request(_options: OAuth2RequestOptions): Promise<OAuth2RequestResult> {
+    return new Promise<OAuth2RequestResult>((_resolve, reject) => {
+      reject(new Error('Functionality not implemented for PWAs yet'));
+    });
+  }
+
+  /**
+   * Get the state of the circuit breakers.
+   */
+  async getCircuitBreakerState(): Promise<OAuth2CircuitBreakerState> {
+    return new Promise<OAuth2CircuitBreakerState>((_resolve, reject) => {
+      reject(new Error('Functionality not implemented for PWAs yet'));
+    });
+  }
+
+  async getLatencyMetrics(): Promise<OAuth2LatencyMetrics> {
+    return new Promise<OAuth2LatencyMetrics>((_resolve, reject) => {
+      reject(new Error('Functionality not implemented for PWAs yet'));
+    });
+  }
+
   async redirectFlowCodeListener(
     options: ImplicitFlowRedirectOptions,
   ): Promise<any> {
@@ -36,7 +88,7 @@ export class GenericOAuth2Web extends WebPlugin implements GenericOAuth2Plugin {
       if (urlParamObj) {
         const code = urlParamObj.code;
         if (code) {
-          this.getAccessToken(urlParamObj, resolve, reject, code);
+          this.requestAccessToken(urlParamObj, resolve, reject, code);
         } else {
           reject(new Error('Oauth Code parameter was not present in url.'));
         }
@@ -132,7 +184,7 @@ export class GenericOAuth2Web extends WebPlugin implements GenericOAuth2Plugin {
                     const authorizationCode =
                       authorizationRedirectUrlParamObj.code;
                     if (authorizationCode) {
-                      this.getAccessToken(
+                      this.requestAccessToken(
                         authorizationRedirectUrlParamObj,
                         resolve,
                         reject,
@@ -175,7 +227,7 @@ export class GenericOAuth2Web extends WebPlugin implements GenericOAuth2Plugin {
 
   private readonly MSG_RETURNED_TO_JS = 'Returned to JS:';
 
-  private getAccessToken(
+  private requestAccessToken(
     authorizationRedirectUrlParamObj: { [p: string]: string } | undefined,
     resolve: (value: any) => void,
     reject: (reason?: any) => void,